@@ -0,0 +1,73 @@
+package com.app.sqlite.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.app.sqlite.backend.jdbc.JdbcBackend;
+import com.app.sqlite.provider.SQLProvider;
+
+/**
+ * A file backed database in a temporary directory, so commits pay for the
+ * journal the way they do on the device
+ * @author samkirton
+ */
+final class BenchmarkDatabase {
+	private File mDirectory;
+	private SQLProvider mProvider;
+	
+	private static final String DATABASE_PATH = "file:///SDCard/databases/benchmark/benchmark.db";
+	
+	BenchmarkDatabase() throws IOException {
+		this(0);
+	}
+	
+	/**
+	 * @param	readerCount	The number of reader handles kept by the provider
+	 */
+	BenchmarkDatabase(int readerCount) throws IOException {
+		mDirectory = Files.createTempDirectory("sqlite-provider-benchmark").toFile();
+		mProvider = new SQLProvider(DATABASE_PATH, new JdbcBackend(mDirectory));
+		mProvider.createDatabase();
+		mProvider.setReaderCount(readerCount);
+		mProvider.open();
+		if (!mProvider.executeQuery(BenchmarkModel.CREATE_TABLE)) {
+			throw new IllegalStateException("Could not create the benchmark table");
+		}
+	}
+	
+	SQLProvider getProvider() {
+		return mProvider;
+	}
+	
+	/**
+	 * @param	rowCount	The number of rows to insert in one transaction
+	 */
+	void fill(int rowCount) {
+		if (!mProvider.insertMultipleValues(BenchmarkModel.TABLE_NAME, BenchmarkModel.create(0, rowCount))) {
+			throw new IllegalStateException("Could not fill the benchmark table");
+		}
+	}
+	
+	void clear() {
+		if (!mProvider.executeQuery("DELETE FROM " + BenchmarkModel.TABLE_NAME)) {
+			throw new IllegalStateException("Could not clear the benchmark table");
+		}
+	}
+	
+	void destroy() {
+		mProvider.close();
+		mProvider.destroyData();
+		deleteTree(mDirectory);
+	}
+	
+	private static void deleteTree(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				deleteTree(children[i]);
+			}
+		}
+		file.delete();
+	}
+}
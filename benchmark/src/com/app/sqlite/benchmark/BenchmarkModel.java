@@ -0,0 +1,59 @@
+package com.app.sqlite.benchmark;
+
+import java.util.Hashtable;
+
+import com.app.sqlite.base.BaseModel;
+import com.app.sqlite.base.DatabaseField;
+
+/**
+ * The model stored by the benchmarks, one column of each type
+ * @author samkirton
+ */
+public class BenchmarkModel extends BaseModel {
+	public static final String TABLE_NAME = "benchmark_row";
+	
+	public static final String FIELD_TITLE = "title";
+	public static final String FIELD_CATEGORY = "category";
+	public static final String FIELD_RANK = "rank";
+	public static final String FIELD_SCORE = "score";
+	public static final String FIELD_CREATED = "created";
+	
+	public static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" +
+			"pid INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, category TEXT, rank INTEGER, " +
+			"score REAL, created INTEGER)";
+	
+	public String getTableName() {
+		return TABLE_NAME;
+	}
+	
+	public Hashtable getFields() {
+		fields.put(FIELD_TITLE, new DatabaseField(TYPE_STRING));
+		fields.put(FIELD_CATEGORY, new DatabaseField(TYPE_STRING));
+		fields.put(FIELD_RANK, new DatabaseField(TYPE_INTEGER));
+		fields.put(FIELD_SCORE, new DatabaseField(TYPE_FLOAT));
+		fields.put(FIELD_CREATED, new DatabaseField(TYPE_LONG));
+		return fields;
+	}
+	
+	/**
+	 * @return	A populated model, rows are spread over 10 categories
+	 */
+	public static BenchmarkModel create(int i) {
+		BenchmarkModel model = new BenchmarkModel();
+		model.setString(FIELD_TITLE, "Row " + i);
+		model.setString(FIELD_CATEGORY, "category" + (i % 10));
+		model.setInt(FIELD_RANK, i);
+		model.setDouble(FIELD_SCORE, i * 0.5);
+		model.setLong(FIELD_CREATED, 1400000000000L + i);
+		return model;
+	}
+	
+	public static BenchmarkModel[] create(int first, int count) {
+		BenchmarkModel[] models = new BenchmarkModel[count];
+		for (int i = 0; i < count; i++) {
+			models[i] = create(first + i);
+		}
+		
+		return models;
+	}
+}
@@ -0,0 +1,72 @@
+package com.app.sqlite.benchmark;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One writer updating single rows while four threads read one category of a
+ * 1000 row table through the same provider. With no readers every read waits for
+ * the writer handle, with readers the reads run on their own handles in 
+ * write-ahead logging mode
+ * @author samkirton
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrencyBenchmark {
+	@Param({"0", "4"})
+	public int readerCount;
+	
+	private BenchmarkDatabase mDatabase;
+	private int mNextRow;
+	
+	private static final int TABLE_SIZE = 1000;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mDatabase = new BenchmarkDatabase(readerCount);
+		mDatabase.fill(TABLE_SIZE);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mDatabase.destroy();
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public boolean write() {
+		// only the writer thread touches mNextRow
+		mNextRow = mNextRow % TABLE_SIZE + 1;
+		return mDatabase.getProvider().executeQuery("UPDATE " + BenchmarkModel.TABLE_NAME + 
+				" SET score = score + 1 WHERE pid = ?", new Object[] { new Integer(mNextRow) });
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(4)
+	public Vector read() {
+		return mDatabase.getProvider().selectWhere(BenchmarkModel.TABLE_NAME, BenchmarkModel.FIELD_CATEGORY, "category7");
+	}
+}
@@ -0,0 +1,68 @@
+package com.app.sqlite.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserting rows one call at a time, each in its own transaction, against 
+ * insertMultipleValues, which commits them together
+ * @author samkirton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsertBenchmark {
+	@Param({"1", "100", "10000"})
+	public int rowCount;
+	
+	private BenchmarkDatabase mDatabase;
+	private BenchmarkModel[] mModels;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mDatabase = new BenchmarkDatabase();
+		mModels = BenchmarkModel.create(0, rowCount);
+	}
+	
+	@Setup(Level.Iteration)
+	public void clear() {
+		mDatabase.clear();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mDatabase.destroy();
+	}
+	
+	@Benchmark
+	public long insertValue() {
+		long rowId = -1;
+		for (int i = 0; i < mModels.length; i++) {
+			rowId = mDatabase.getProvider().insertValue(BenchmarkModel.TABLE_NAME, mModels[i]);
+		}
+		
+		return rowId;
+	}
+	
+	@Benchmark
+	public boolean insertMultipleValues() {
+		return mDatabase.getProvider().insertMultipleValues(BenchmarkModel.TABLE_NAME, mModels);
+	}
+}
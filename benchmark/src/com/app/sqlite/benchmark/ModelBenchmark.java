@@ -0,0 +1,63 @@
+package com.app.sqlite.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.app.sqlite.base.BaseModel;
+
+/**
+ * Setting and reading a long field through the boxed setValue and getValue
+ * methods, through the typed methods by name and through the typed methods by
+ * column index
+ * @author samkirton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+	private BenchmarkModel mModel;
+	private int mCreatedColumn;
+	private long mValue;
+	
+	@Setup
+	public void setUp() {
+		mModel = BenchmarkModel.create(1);
+		mCreatedColumn = mModel.getColumnIndex(BenchmarkModel.FIELD_CREATED);
+	}
+	
+	@Benchmark
+	public long boxedSetGet() {
+		mModel.setValue(BenchmarkModel.FIELD_CREATED, new Long(++mValue));
+		return ((Long)mModel.getField(mCreatedColumn).getValue()).longValue();
+	}
+	
+	@Benchmark
+	public long typedSetGetByName() {
+		mModel.setLong(BenchmarkModel.FIELD_CREATED, ++mValue);
+		return mModel.getLong(BenchmarkModel.FIELD_CREATED);
+	}
+	
+	@Benchmark
+	public long typedSetGetByIndex() {
+		mModel.setLong(mCreatedColumn, ++mValue);
+		return mModel.getLong(mCreatedColumn);
+	}
+	
+	@Benchmark
+	public BaseModel createModel() {
+		return BenchmarkModel.create(1);
+	}
+}
@@ -0,0 +1,49 @@
+package com.app.sqlite.benchmark;
+
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.app.sqlite.helper.DatabaseHelper;
+
+/**
+ * Building the INSERT query of a model from its field table each time against
+ * reading the query cached by its ModelMetadata
+ * @author samkirton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuildBenchmark {
+	private BenchmarkModel mModel;
+	private Hashtable mFields;
+	
+	@Setup
+	public void setUp() {
+		mModel = BenchmarkModel.create(1);
+		mFields = mModel.getFields();
+	}
+	
+	@Benchmark
+	public String buildInsertQuery() {
+		return DatabaseHelper.buildInsertQuery(BenchmarkModel.TABLE_NAME, mFields);
+	}
+	
+	@Benchmark
+	public String cachedInsertQuery() {
+		return mModel.getMetadata().getInsertQuery();
+	}
+}
@@ -0,0 +1,59 @@
+package com.app.sqlite.benchmark;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading every row and the rows of one category (a tenth of the table, no index)
+ * from tables of increasing size. The result cache is off so every call reads
+ * the database
+ * @author samkirton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark {
+	@Param({"100", "1000", "10000"})
+	public int tableSize;
+	
+	private BenchmarkDatabase mDatabase;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mDatabase = new BenchmarkDatabase();
+		mDatabase.fill(tableSize);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mDatabase.destroy();
+	}
+	
+	@Benchmark
+	public Vector selectAll() {
+		return mDatabase.getProvider().selectAll(BenchmarkModel.TABLE_NAME);
+	}
+	
+	@Benchmark
+	public Vector selectWhere() {
+		return mDatabase.getProvider().selectWhere(BenchmarkModel.TABLE_NAME, BenchmarkModel.FIELD_CATEGORY, "category7");
+	}
+}
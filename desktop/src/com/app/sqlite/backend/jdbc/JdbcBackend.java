@@ -0,0 +1,178 @@
+package com.app.sqlite.backend.jdbc;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseBackend;
+import com.app.sqlite.backend.DatabaseBusyException;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.DatabaseIOException;
+
+/**
+ * A DatabaseBackend for a plain JVM built on the SQLite JDBC driver, so the provider
+ * runs against the same SQL engine as the device. Device paths such as 
+ * file:///SDCard/databases/app/app.db are mapped to files below a root directory, 
+ * or to shared in-memory databases that live until they are deleted
+ * @author samkirton
+ */
+public final class JdbcBackend implements DatabaseBackend {
+	private File mRootDirectory;
+	private Map<String, Connection> mMemoryDatabases;
+	
+	private static final String URL_PREFIX = "jdbc:sqlite:";
+	
+	/**
+	 * @param	rootDirectory	The directory that database paths are resolved against
+	 */
+	public JdbcBackend(File rootDirectory) {
+		mRootDirectory = rootDirectory;
+	}
+	
+	private JdbcBackend() {
+		mMemoryDatabases = new HashMap<String, Connection>();
+	}
+	
+	/**
+	 * @return	A backend that keeps every database in memory, a database exists from
+	 * openOrCreate() until delete()
+	 */
+	public static JdbcBackend inMemory() {
+		return new JdbcBackend();
+	}
+	
+	public Database open(String databasePath) throws DatabaseException {
+		if (!exists(databasePath)) {
+			throw new DatabaseIOException("The database does not exist: " + databasePath);
+		}
+		
+		return connect(databasePath);
+	}
+	
+	public Database openOrCreate(String databasePath) throws DatabaseException {
+		if (isInMemory()) {
+			synchronized (mMemoryDatabases) {
+				if (!mMemoryDatabases.containsKey(databasePath)) {
+					// the first connection keeps the shared in-memory database alive
+					mMemoryDatabases.put(databasePath, openConnection(databasePath));
+				}
+			}
+		} else {
+			File parent = getFile(databasePath).getParentFile();
+			if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+				throw new DatabaseIOException("Could not create the directory: " + parent);
+			}
+		}
+		
+		return connect(databasePath);
+	}
+	
+	public void delete(String databasePath) throws DatabaseException {
+		if (isInMemory()) {
+			Connection connection;
+			synchronized (mMemoryDatabases) {
+				connection = mMemoryDatabases.remove(databasePath);
+			}
+			
+			if (connection != null) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					throw wrap(e);
+				}
+			}
+			return;
+		}
+		
+		File file = getFile(databasePath);
+		new File(file.getPath() + "-journal").delete();
+		new File(file.getPath() + "-wal").delete();
+		new File(file.getPath() + "-shm").delete();
+		if (file.exists() && !file.delete()) {
+			throw new DatabaseIOException("Could not delete the database: " + databasePath);
+		}
+	}
+	
+	public boolean exists(String databasePath) throws DatabaseException {
+		if (isInMemory()) {
+			synchronized (mMemoryDatabases) {
+				return mMemoryDatabases.containsKey(databasePath);
+			}
+		}
+		
+		return getFile(databasePath).isFile();
+	}
+	
+	private boolean isInMemory() {
+		return mMemoryDatabases != null;
+	}
+	
+	private Database connect(String databasePath) throws DatabaseException {
+		return new JdbcDatabase(openConnection(databasePath));
+	}
+	
+	private Connection openConnection(String databasePath) throws DatabaseException {
+		try {
+			if (isInMemory()) {
+				return DriverManager.getConnection(URL_PREFIX + "file:" + toMemoryName(databasePath) + "?mode=memory&cache=shared");
+			}
+			
+			return DriverManager.getConnection(URL_PREFIX + getFile(databasePath).getPath());
+		} catch (SQLException e) {
+			throw wrap(e);
+		}
+	}
+	
+	/**
+	 * @return	The file of a device path, the URI scheme is dropped and the rest of
+	 * the path is resolved against the root directory
+	 */
+	private File getFile(String databasePath) {
+		String path = databasePath;
+		int scheme = path.indexOf("://");
+		if (scheme != -1) {
+			path = path.substring(scheme + 3);
+		}
+		
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		
+		return new File(mRootDirectory, path);
+	}
+	
+	private static String toMemoryName(String databasePath) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < databasePath.length(); i++) {
+			char c = databasePath.charAt(i);
+			name.append(Character.isLetterOrDigit(c) ? c : '_');
+		}
+		
+		return name.toString();
+	}
+	
+	/**
+	 * Convert a driver exception to the backend exception of the same kind, SQLite
+	 * IO, corruption, full disk and open errors mean the handle should be reopened
+	 * and busy and locked errors can be tried again
+	 */
+	static DatabaseException wrap(SQLException e) {
+		switch (e.getErrorCode() & 0xff) {
+			case 5:		// SQLITE_BUSY
+			case 6:		// SQLITE_LOCKED
+				return new DatabaseBusyException(e.getMessage());
+			case 10:	// SQLITE_IOERR
+			case 11:	// SQLITE_CORRUPT
+			case 13:	// SQLITE_FULL
+			case 14:	// SQLITE_CANTOPEN
+			case 26:	// SQLITE_NOTADB
+				return new DatabaseIOException(e.getMessage());
+			default:
+				return new DatabaseException(e.getMessage());
+		}
+	}
+}
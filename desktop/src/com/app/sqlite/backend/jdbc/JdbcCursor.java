@@ -0,0 +1,64 @@
+package com.app.sqlite.backend.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Row;
+
+/**
+ * A Cursor backed by a JDBC result set, each row is copied out of the result set
+ * so it can be kept after the cursor moves
+ * @author samkirton
+ */
+final class JdbcCursor implements Cursor {
+	private ResultSet mResultSet;
+	private String[] mColumnNames;
+	private Row mRow;
+	
+	JdbcCursor(ResultSet resultSet) throws SQLException {
+		mResultSet = resultSet;
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		mColumnNames = new String[metaData.getColumnCount()];
+		for (int i = 0; i < mColumnNames.length; i++) {
+			mColumnNames[i] = metaData.getColumnLabel(i + 1);
+		}
+	}
+	
+	public boolean next() throws DatabaseException {
+		try {
+			if (!mResultSet.next()) {
+				mRow = null;
+				return false;
+			}
+			
+			Object[] values = new Object[mColumnNames.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = mResultSet.getObject(i + 1);
+			}
+			
+			mRow = new JdbcRow(mColumnNames, values);
+			return true;
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public Row getRow() throws DatabaseException {
+		if (mRow == null) {
+			throw new DatabaseException("The cursor is not positioned on a row");
+		}
+		
+		return mRow;
+	}
+	
+	public void close() throws DatabaseException {
+		try {
+			mResultSet.close();
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+}
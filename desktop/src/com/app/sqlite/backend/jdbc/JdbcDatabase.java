@@ -0,0 +1,85 @@
+package com.app.sqlite.backend.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.DatabaseIOException;
+import com.app.sqlite.backend.Statement;
+
+/**
+ * A Database backed by a JDBC connection
+ * @author samkirton
+ */
+final class JdbcDatabase implements Database {
+	private Connection mConnection;
+	private PreparedStatement mLastRowIdStatement;
+	
+	JdbcDatabase(Connection connection) {
+		mConnection = connection;
+	}
+	
+	public Statement createStatement(String sql) throws DatabaseException {
+		return new JdbcStatement(mConnection, sql);
+	}
+	
+	public void beginTransaction() throws DatabaseException {
+		try {
+			if (!mConnection.getAutoCommit()) {
+				throw new DatabaseException("A transaction is already open");
+			}
+			mConnection.setAutoCommit(false);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void commitTransaction() throws DatabaseException {
+		try {
+			mConnection.commit();
+			mConnection.setAutoCommit(true);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void rollbackTransaction() throws DatabaseException {
+		try {
+			mConnection.rollback();
+			mConnection.setAutoCommit(true);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public long lastInsertedRowID() throws DatabaseException {
+		try {
+			if (mLastRowIdStatement == null) {
+				mLastRowIdStatement = mConnection.prepareStatement("SELECT last_insert_rowid()");
+			}
+			
+			ResultSet resultSet = mLastRowIdStatement.executeQuery();
+			try {
+				return resultSet.next() ? resultSet.getLong(1) : -1;
+			} finally {
+				resultSet.close();
+			}
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void close() throws DatabaseIOException {
+		try {
+			if (mLastRowIdStatement != null) {
+				mLastRowIdStatement.close();
+			}
+			mConnection.close();
+		} catch (SQLException e) {
+			throw new DatabaseIOException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.app.sqlite.backend.jdbc;
+
+import com.app.sqlite.backend.DataTypeException;
+import com.app.sqlite.backend.Row;
+
+/**
+ * A copied row of a JDBC result set, values are converted between types the way
+ * SQLite converts them
+ * @author samkirton
+ */
+final class JdbcRow implements Row {
+	private String[] mColumnNames;
+	private Object[] mValues;
+	
+	JdbcRow(String[] columnNames, Object[] values) {
+		mColumnNames = columnNames;
+		mValues = values;
+	}
+	
+	public int getColumnIndex(String columnName) {
+		for (int i = 0; i < mColumnNames.length; i++) {
+			if (mColumnNames[i].equalsIgnoreCase(columnName)) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	public String[] getColumnNames() {
+		return mColumnNames.clone();
+	}
+	
+	public boolean isNull(int index) throws DataTypeException {
+		return getValue(index) == null;
+	}
+	
+	public String getString(int index) throws DataTypeException {
+		Object value = getValue(index);
+		if (value instanceof byte[]) {
+			return new String((byte[])value);
+		}
+		
+		return value == null ? null : value.toString();
+	}
+	
+	public long getLong(int index) throws DataTypeException {
+		Object value = getValue(index);
+		if (value instanceof Number) {
+			return ((Number)value).longValue();
+		} else if (value instanceof String) {
+			try {
+				return Long.parseLong(((String)value).trim());
+			} catch (NumberFormatException e) { }
+		}
+		
+		return (long)parseNumber(value);
+	}
+	
+	public int getInteger(int index) throws DataTypeException {
+		return (int)getLong(index);
+	}
+	
+	public double getDouble(int index) throws DataTypeException {
+		Object value = getValue(index);
+		if (value instanceof Number) {
+			return ((Number)value).doubleValue();
+		}
+		
+		return parseNumber(value);
+	}
+	
+	public float getFloat(int index) throws DataTypeException {
+		return (float)getDouble(index);
+	}
+	
+	public byte[] getBlobBytes(int index) throws DataTypeException {
+		Object value = getValue(index);
+		if (value instanceof byte[]) {
+			return (byte[])value;
+		}
+		
+		return value == null ? null : value.toString().getBytes();
+	}
+	
+	public Object getObject(int index) throws DataTypeException {
+		return getValue(index);
+	}
+	
+	private Object getValue(int index) throws DataTypeException {
+		if (index < 0 || index >= mValues.length) {
+			throw new DataTypeException("Invalid column index: " + index);
+		}
+		
+		return mValues[index];
+	}
+	
+	/**
+	 * @return	The number a text value starts with, 0 for NULL or text that is not a number
+	 */
+	private static double parseNumber(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		
+		String text = value instanceof byte[] ? new String((byte[])value) : value.toString();
+		try {
+			return Double.parseDouble(text.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.app.sqlite.backend.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Statement;
+
+/**
+ * A Statement backed by a JDBC prepared statement
+ * @author samkirton
+ */
+final class JdbcStatement implements Statement {
+	private Connection mConnection;
+	private String mSql;
+	private PreparedStatement mStatement;
+	private ResultSet mResultSet;
+	
+	JdbcStatement(Connection connection, String sql) {
+		mConnection = connection;
+		mSql = sql;
+	}
+	
+	public void prepare() throws DatabaseException {
+		try {
+			mStatement = mConnection.prepareStatement(mSql);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, String value) throws DatabaseException {
+		try {
+			getStatement().setString(index, value);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, long value) throws DatabaseException {
+		try {
+			getStatement().setLong(index, value);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, int value) throws DatabaseException {
+		try {
+			getStatement().setInt(index, value);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, double value) throws DatabaseException {
+		try {
+			getStatement().setDouble(index, value);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, byte[] value) throws DatabaseException {
+		try {
+			getStatement().setBytes(index, value);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void bindNull(int index) throws DatabaseException {
+		try {
+			getStatement().setNull(index, Types.NULL);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void execute() throws DatabaseException {
+		try {
+			closeResultSet();
+			if (getStatement().execute()) {
+				getStatement().getResultSet().close();
+			}
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public Cursor getCursor() throws DatabaseException {
+		try {
+			closeResultSet();
+			mResultSet = getStatement().executeQuery();
+			return new JdbcCursor(mResultSet);
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void reset() throws DatabaseException {
+		try {
+			closeResultSet();
+			getStatement().clearParameters();
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	public void close() throws DatabaseException {
+		try {
+			closeResultSet();
+			if (mStatement != null) {
+				mStatement.close();
+				mStatement = null;
+			}
+		} catch (SQLException e) {
+			throw JdbcBackend.wrap(e);
+		}
+	}
+	
+	private PreparedStatement getStatement() throws DatabaseException {
+		if (mStatement == null) {
+			throw new DatabaseException("The statement has not been prepared");
+		}
+		
+		return mStatement;
+	}
+	
+	private void closeResultSet() throws SQLException {
+		if (mResultSet != null) {
+			mResultSet.close();
+			mResultSet = null;
+		}
+	}
+}
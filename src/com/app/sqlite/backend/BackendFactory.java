@@ -0,0 +1,36 @@
+package com.app.sqlite.backend;
+
+/**
+ * Provides the DatabaseBackend used when a SQLProvider is created without one.
+ * The RIM backend is used when it is on the classpath, anywhere else a backend
+ * must be set with setDefault()
+ * @author samkirton
+ */
+public final class BackendFactory {
+	private static DatabaseBackend sDefault;
+	
+	private static final String RIM_BACKEND = "com.app.sqlite.backend.rim.RimBackend";
+	
+	/**
+	 * @param	backend	The backend used by SQLProviders created without one
+	 */
+	public static synchronized void setDefault(DatabaseBackend backend) {
+		sDefault = backend;
+	}
+	
+	/**
+	 * @return	The default backend
+	 * @throws	IllegalStateException	No backend was set and the RIM backend is not available
+	 */
+	public static synchronized DatabaseBackend getDefault() {
+		if (!(sDefault instanceof DatabaseBackend)) {
+			try {
+				sDefault = (DatabaseBackend)Class.forName(RIM_BACKEND).newInstance();
+			} catch (Exception e) {
+				throw new IllegalStateException("No database backend is available, call BackendFactory.setDefault()");
+			}
+		}
+		
+		return sDefault;
+	}
+}
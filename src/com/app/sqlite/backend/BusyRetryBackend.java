@@ -0,0 +1,117 @@
+package com.app.sqlite.backend;
+
+/**
+ * Wraps a backend so that an operation that fails because another handle holds
+ * a lock is tried again after a delay that doubles after each attempt. The
+ * attempts are bounded so a lock that is never released still fails. Only the
+ * operations that take a lock are retried: opening, beginning and committing a
+ * transaction, executing a statement and stepping a cursor
+ * @author samkirton
+ */
+public final class BusyRetryBackend implements DatabaseBackend {
+	private DatabaseBackend mBackend;
+	private volatile int mMaxAttempts;
+	private volatile long mInitialDelay;
+	private int mRetryCount;
+	private int mFailureCount;
+	
+	public static final int DEFAULT_MAX_ATTEMPTS = 8;
+	public static final long DEFAULT_INITIAL_DELAY = 10;
+	public static final long MAX_DELAY = 500;
+	
+	/**
+	 * @param	backend	The backend to wrap
+	 */
+	public BusyRetryBackend(DatabaseBackend backend) {
+		this(backend, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY);
+	}
+	
+	/**
+	 * @param	backend	The backend to wrap
+	 * @param	maxAttempts	The number of times an operation is tried, 1 disables retries
+	 * @param	initialDelay	The delay in milliseconds before the first retry
+	 */
+	public BusyRetryBackend(DatabaseBackend backend, int maxAttempts, long initialDelay) {
+		mBackend = backend;
+		setRetryPolicy(maxAttempts, initialDelay);
+	}
+	
+	/**
+	 * @param	maxAttempts	The number of times an operation is tried, 1 disables retries
+	 * @param	initialDelay	The delay in milliseconds before the first retry, doubled
+	 * after each attempt up to MAX_DELAY
+	 */
+	public void setRetryPolicy(int maxAttempts, long initialDelay) {
+		mMaxAttempts = Math.max(maxAttempts, 1);
+		mInitialDelay = Math.max(initialDelay, 0);
+	}
+	
+	/**
+	 * @return	The number of times an operation was tried again
+	 */
+	public synchronized int getRetryCount() {
+		return mRetryCount;
+	}
+	
+	/**
+	 * @return	The number of operations that were still busy after the last attempt
+	 */
+	public synchronized int getFailureCount() {
+		return mFailureCount;
+	}
+	
+	public Database open(String databasePath) throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return new BusyRetryDatabase(this, mBackend.open(databasePath));
+			} catch (DatabaseBusyException e) {
+				backoff(e, attempt);
+			}
+		}
+	}
+	
+	public Database openOrCreate(String databasePath) throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return new BusyRetryDatabase(this, mBackend.openOrCreate(databasePath));
+			} catch (DatabaseBusyException e) {
+				backoff(e, attempt);
+			}
+		}
+	}
+	
+	public void delete(String databasePath) throws DatabaseException {
+		mBackend.delete(databasePath);
+	}
+	
+	public boolean exists(String databasePath) throws DatabaseException {
+		return mBackend.exists(databasePath);
+	}
+	
+	/**
+	 * Wait before the next attempt of an operation that was busy
+	 * @param	e	The busy error of the attempt
+	 * @param	attempt	The attempt that failed, from 0
+	 * @throws	DatabaseBusyException	The last attempt failed or the thread was interrupted
+	 */
+	void backoff(DatabaseBusyException e, int attempt) throws DatabaseBusyException {
+		if (attempt + 1 >= mMaxAttempts) {
+			synchronized (this) {
+				mFailureCount++;
+			}
+			throw e;
+		}
+		
+		synchronized (this) {
+			mRetryCount++;
+		}
+		
+		long delay = mInitialDelay << Math.min(attempt, 16);
+		try {
+			Thread.sleep(Math.min(delay, MAX_DELAY));
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+}
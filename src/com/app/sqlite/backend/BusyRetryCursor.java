@@ -0,0 +1,33 @@
+package com.app.sqlite.backend;
+
+/**
+ * A cursor whose steps are retried by a BusyRetryBackend
+ * @author samkirton
+ */
+final class BusyRetryCursor implements Cursor {
+	private BusyRetryBackend mBackend;
+	private Cursor mCursor;
+	
+	BusyRetryCursor(BusyRetryBackend backend, Cursor cursor) {
+		mBackend = backend;
+		mCursor = cursor;
+	}
+	
+	public boolean next() throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return mCursor.next();
+			} catch (DatabaseBusyException e) {
+				mBackend.backoff(e, attempt);
+			}
+		}
+	}
+	
+	public Row getRow() throws DatabaseException {
+		return mCursor.getRow();
+	}
+	
+	public void close() throws DatabaseException {
+		mCursor.close();
+	}
+}
@@ -0,0 +1,56 @@
+package com.app.sqlite.backend;
+
+/**
+ * A handle whose transactions and statements are retried by a BusyRetryBackend
+ * @author samkirton
+ */
+final class BusyRetryDatabase implements Database {
+	private BusyRetryBackend mBackend;
+	private Database mDatabase;
+	
+	BusyRetryDatabase(BusyRetryBackend backend, Database database) {
+		mBackend = backend;
+		mDatabase = database;
+	}
+	
+	public Statement createStatement(String sql) throws DatabaseException {
+		return new BusyRetryStatement(mBackend, mDatabase.createStatement(sql));
+	}
+	
+	public void beginTransaction() throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				mDatabase.beginTransaction();
+				return;
+			} catch (DatabaseBusyException e) {
+				mBackend.backoff(e, attempt);
+			}
+		}
+	}
+	
+	/**
+	 * A busy commit leaves the transaction open so the commit can be tried again
+	 */
+	public void commitTransaction() throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				mDatabase.commitTransaction();
+				return;
+			} catch (DatabaseBusyException e) {
+				mBackend.backoff(e, attempt);
+			}
+		}
+	}
+	
+	public void rollbackTransaction() throws DatabaseException {
+		mDatabase.rollbackTransaction();
+	}
+	
+	public long lastInsertedRowID() throws DatabaseException {
+		return mDatabase.lastInsertedRowID();
+	}
+	
+	public void close() throws DatabaseIOException {
+		mDatabase.close();
+	}
+}
@@ -0,0 +1,79 @@
+package com.app.sqlite.backend;
+
+/**
+ * A statement whose execution and cursor are retried by a BusyRetryBackend
+ * @author samkirton
+ */
+final class BusyRetryStatement implements Statement {
+	private BusyRetryBackend mBackend;
+	private Statement mStatement;
+	
+	BusyRetryStatement(BusyRetryBackend backend, Statement statement) {
+		mBackend = backend;
+		mStatement = statement;
+	}
+	
+	public void prepare() throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				mStatement.prepare();
+				return;
+			} catch (DatabaseBusyException e) {
+				mBackend.backoff(e, attempt);
+			}
+		}
+	}
+	
+	public void bind(int index, String value) throws DatabaseException {
+		mStatement.bind(index, value);
+	}
+	
+	public void bind(int index, long value) throws DatabaseException {
+		mStatement.bind(index, value);
+	}
+	
+	public void bind(int index, int value) throws DatabaseException {
+		mStatement.bind(index, value);
+	}
+	
+	public void bind(int index, double value) throws DatabaseException {
+		mStatement.bind(index, value);
+	}
+	
+	public void bind(int index, byte[] value) throws DatabaseException {
+		mStatement.bind(index, value);
+	}
+	
+	public void bindNull(int index) throws DatabaseException {
+		mStatement.bindNull(index);
+	}
+	
+	public void execute() throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				mStatement.execute();
+				return;
+			} catch (DatabaseBusyException e) {
+				mBackend.backoff(e, attempt);
+			}
+		}
+	}
+	
+	public Cursor getCursor() throws DatabaseException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return new BusyRetryCursor(mBackend, mStatement.getCursor());
+			} catch (DatabaseBusyException e) {
+				mBackend.backoff(e, attempt);
+			}
+		}
+	}
+	
+	public void reset() throws DatabaseException {
+		mStatement.reset();
+	}
+	
+	public void close() throws DatabaseException {
+		mStatement.close();
+	}
+}
@@ -0,0 +1,20 @@
+package com.app.sqlite.backend;
+
+/**
+ * A forward only cursor over the rows of a statement
+ * @author samkirton
+ */
+public interface Cursor {
+	/**
+	 * @return	Was the cursor moved to another row?
+	 */
+	public boolean next() throws DatabaseException;
+	
+	/**
+	 * @return	The row the cursor is positioned on, the row can be kept after the
+	 * cursor moves or is closed
+	 */
+	public Row getRow() throws DatabaseException;
+	
+	public void close() throws DatabaseException;
+}
@@ -0,0 +1,11 @@
+package com.app.sqlite.backend;
+
+/**
+ * A column value could not be read as the requested type
+ * @author samkirton
+ */
+public class DataTypeException extends DatabaseException {
+	public DataTypeException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,26 @@
+package com.app.sqlite.backend;
+
+/**
+ * An open database handle
+ * @author samkirton
+ */
+public interface Database {
+	/**
+	 * @param	sql	The SQL text of a single statement
+	 * @return	A statement that must be prepared before it is used
+	 */
+	public Statement createStatement(String sql) throws DatabaseException;
+	
+	public void beginTransaction() throws DatabaseException;
+	
+	public void commitTransaction() throws DatabaseException;
+	
+	public void rollbackTransaction() throws DatabaseException;
+	
+	/**
+	 * @return	The row id of the last row inserted on this handle
+	 */
+	public long lastInsertedRowID() throws DatabaseException;
+	
+	public void close() throws DatabaseIOException;
+}
@@ -0,0 +1,31 @@
+package com.app.sqlite.backend;
+
+/**
+ * The SQL engine used by the SQLProvider. The device uses the RIM database API,
+ * other implementations let the provider run on a plain JVM
+ * @author samkirton
+ */
+public interface DatabaseBackend {
+	/**
+	 * @param	databasePath	The path of an existing database
+	 * @return	An open handle to the database
+	 */
+	public Database open(String databasePath) throws DatabaseException;
+	
+	/**
+	 * @param	databasePath	The path of the database, it is created if it does not exist
+	 * @return	An open handle to the database
+	 */
+	public Database openOrCreate(String databasePath) throws DatabaseException;
+	
+	/**
+	 * @param	databasePath	The path of the database to delete
+	 */
+	public void delete(String databasePath) throws DatabaseException;
+	
+	/**
+	 * @param	databasePath	The path of the database
+	 * @return	Does the database exist?
+	 */
+	public boolean exists(String databasePath) throws DatabaseException;
+}
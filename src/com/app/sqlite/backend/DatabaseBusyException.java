@@ -0,0 +1,12 @@
+package com.app.sqlite.backend;
+
+/**
+ * The database is locked by another handle, the operation can be tried again
+ * once the lock is released
+ * @author samkirton
+ */
+public class DatabaseBusyException extends DatabaseException {
+	public DatabaseBusyException(String message) {
+		super(message);
+	}
+}
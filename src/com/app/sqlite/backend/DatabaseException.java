@@ -0,0 +1,11 @@
+package com.app.sqlite.backend;
+
+/**
+ * A database error raised by a backend, the handle that raised it can still be used
+ * @author samkirton
+ */
+public class DatabaseException extends Exception {
+	public DatabaseException(String message) {
+		super(message);
+	}
+}
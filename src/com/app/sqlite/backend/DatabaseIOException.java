@@ -0,0 +1,11 @@
+package com.app.sqlite.backend;
+
+/**
+ * The database file could not be read or written, the handle should be reopened
+ * @author samkirton
+ */
+public class DatabaseIOException extends DatabaseException {
+	public DatabaseIOException(String message) {
+		super(message);
+	}
+}
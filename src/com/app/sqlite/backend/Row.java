@@ -0,0 +1,45 @@
+package com.app.sqlite.backend;
+
+/**
+ * The values of one row of a query, columns are indexed from 0
+ * @author samkirton
+ */
+public interface Row {
+	/**
+	 * @return	The index of the named column or -1 if the row has no such column
+	 */
+	public int getColumnIndex(String columnName);
+	
+	public String[] getColumnNames();
+	
+	/**
+	 * @return	Is the value NULL?
+	 */
+	public boolean isNull(int index) throws DataTypeException;
+	
+	/**
+	 * @return	The value or null if it is NULL
+	 */
+	public String getString(int index) throws DataTypeException;
+	
+	/**
+	 * @return	The value or 0 if it is NULL
+	 */
+	public long getLong(int index) throws DataTypeException;
+	
+	public int getInteger(int index) throws DataTypeException;
+	
+	public double getDouble(int index) throws DataTypeException;
+	
+	public float getFloat(int index) throws DataTypeException;
+	
+	/**
+	 * @return	The value or null if it is NULL
+	 */
+	public byte[] getBlobBytes(int index) throws DataTypeException;
+	
+	/**
+	 * @return	The value as a Long, Integer, Double, String or byte[] or null if it is NULL
+	 */
+	public Object getObject(int index) throws DataTypeException;
+}
@@ -0,0 +1,45 @@
+package com.app.sqlite.backend;
+
+/**
+ * A statement created by a Database, placeholders are bound from index 1
+ * @author samkirton
+ */
+public interface Statement {
+	public void prepare() throws DatabaseException;
+	
+	/**
+	 * @param	value	The value, null binds NULL
+	 */
+	public void bind(int index, String value) throws DatabaseException;
+	
+	public void bind(int index, long value) throws DatabaseException;
+	
+	public void bind(int index, int value) throws DatabaseException;
+	
+	public void bind(int index, double value) throws DatabaseException;
+	
+	/**
+	 * @param	value	The value, null binds NULL
+	 */
+	public void bind(int index, byte[] value) throws DatabaseException;
+	
+	public void bindNull(int index) throws DatabaseException;
+	
+	/**
+	 * Run a statement that does not return rows
+	 */
+	public void execute() throws DatabaseException;
+	
+	/**
+	 * Run a statement that returns rows
+	 * @return	A cursor positioned before the first row
+	 */
+	public Cursor getCursor() throws DatabaseException;
+	
+	/**
+	 * Reset a statement so it can be executed again, the values must be bound again
+	 */
+	public void reset() throws DatabaseException;
+	
+	public void close() throws DatabaseException;
+}
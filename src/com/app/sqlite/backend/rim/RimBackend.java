@@ -0,0 +1,87 @@
+package com.app.sqlite.backend.rim;
+
+import com.app.sqlite.backend.DataTypeException;
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseBackend;
+import com.app.sqlite.backend.DatabaseBusyException;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.DatabaseIOException;
+
+import net.rim.device.api.database.DatabaseFactory;
+import net.rim.device.api.io.URI;
+
+/**
+ * The DatabaseBackend of the device, built on the RIM database API. Database paths
+ * are URIs such as file:///SDCard/databases/app/app.db
+ * @author samkirton
+ */
+public final class RimBackend implements DatabaseBackend {
+	public Database open(String databasePath) throws DatabaseException {
+		try {
+			return new RimDatabase(DatabaseFactory.open(toUri(databasePath)));
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw wrap(e);
+		}
+	}
+	
+	public Database openOrCreate(String databasePath) throws DatabaseException {
+		try {
+			return new RimDatabase(DatabaseFactory.openOrCreate(toUri(databasePath)));
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw wrap(e);
+		}
+	}
+	
+	public void delete(String databasePath) throws DatabaseException {
+		try {
+			DatabaseFactory.delete(toUri(databasePath));
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw wrap(e);
+		}
+	}
+	
+	public boolean exists(String databasePath) throws DatabaseException {
+		try {
+			return DatabaseFactory.exists(toUri(databasePath));
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw wrap(e);
+		}
+	}
+	
+	private static URI toUri(String databasePath) throws DatabaseException {
+		try {
+			return URI.create(databasePath);
+		} catch (Exception e) {
+			throw new DatabaseIOException("Invalid database path: " + databasePath);
+		}
+	}
+	
+	/**
+	 * Convert a RIM exception to the backend exception of the same kind
+	 */
+	static DatabaseException wrap(net.rim.device.api.database.DatabaseException e) {
+		if (e instanceof net.rim.device.api.database.DataTypeException) {
+			return new DataTypeException(e.getMessage());
+		} else if (e instanceof net.rim.device.api.database.DatabaseIOException ||
+				e instanceof net.rim.device.api.database.DatabasePathException) {
+			return new DatabaseIOException(e.getMessage());
+		}
+		
+		
+		// the RIM API has no error codes, SQLITE_BUSY and SQLITE_LOCKED are found by their message
+		String message = e.getMessage();
+		if (message instanceof String) {
+			String lowerCase = message.toLowerCase();
+			if (lowerCase.indexOf("database is locked") != -1 || lowerCase.indexOf("busy") != -1 ||
+					lowerCase.indexOf("table is locked") != -1) {
+				return new DatabaseBusyException(message);
+			}
+		}
+		
+		return new DatabaseException(message);
+	}
+	
+	static DataTypeException wrap(net.rim.device.api.database.DataTypeException e) {
+		return new DataTypeException(e.getMessage());
+	}
+}
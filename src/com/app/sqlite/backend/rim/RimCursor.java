@@ -0,0 +1,41 @@
+package com.app.sqlite.backend.rim;
+
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Row;
+
+/**
+ * A Cursor backed by a RIM cursor
+ * @author samkirton
+ */
+final class RimCursor implements Cursor {
+	private net.rim.device.api.database.Cursor mCursor;
+	
+	RimCursor(net.rim.device.api.database.Cursor cursor) {
+		mCursor = cursor;
+	}
+	
+	public boolean next() throws DatabaseException {
+		try {
+			return mCursor.next();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public Row getRow() throws DatabaseException {
+		try {
+			return new RimRow(mCursor.getRow());
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void close() throws DatabaseException {
+		try {
+			mCursor.close();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.app.sqlite.backend.rim;
+
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.DatabaseIOException;
+import com.app.sqlite.backend.Statement;
+
+/**
+ * A Database backed by a RIM database handle
+ * @author samkirton
+ */
+final class RimDatabase implements Database {
+	private net.rim.device.api.database.Database mDatabase;
+	
+	RimDatabase(net.rim.device.api.database.Database database) {
+		mDatabase = database;
+	}
+	
+	public Statement createStatement(String sql) throws DatabaseException {
+		try {
+			return new RimStatement(mDatabase.createStatement(sql));
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void beginTransaction() throws DatabaseException {
+		try {
+			mDatabase.beginTransaction();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void commitTransaction() throws DatabaseException {
+		try {
+			mDatabase.commitTransaction();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void rollbackTransaction() throws DatabaseException {
+		try {
+			mDatabase.rollbackTransaction();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public long lastInsertedRowID() throws DatabaseException {
+		try {
+			return mDatabase.lastInsertedRowID();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void close() throws DatabaseIOException {
+		try {
+			mDatabase.close();
+		} catch (net.rim.device.api.database.DatabaseIOException e) {
+			throw new DatabaseIOException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.app.sqlite.backend.rim;
+
+import com.app.sqlite.backend.DataTypeException;
+import com.app.sqlite.backend.Row;
+
+/**
+ * A Row backed by a RIM row
+ * @author samkirton
+ */
+final class RimRow implements Row {
+	private net.rim.device.api.database.Row mRow;
+	
+	RimRow(net.rim.device.api.database.Row row) {
+		mRow = row;
+	}
+	
+	public int getColumnIndex(String columnName) {
+		try {
+			return mRow.getColumnIndex(columnName);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+	
+	public String[] getColumnNames() {
+		return mRow.getColumnNames();
+	}
+	
+	public boolean isNull(int index) throws DataTypeException {
+		try {
+			// the RIM row only reports a NULL through getObject()
+			return mRow.getObject(index) == null;
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public String getString(int index) throws DataTypeException {
+		try {
+			return mRow.getString(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public long getLong(int index) throws DataTypeException {
+		try {
+			return mRow.getLong(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public int getInteger(int index) throws DataTypeException {
+		try {
+			return mRow.getInteger(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public double getDouble(int index) throws DataTypeException {
+		try {
+			return mRow.getDouble(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public float getFloat(int index) throws DataTypeException {
+		try {
+			return mRow.getFloat(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public byte[] getBlobBytes(int index) throws DataTypeException {
+		try {
+			return mRow.getBlobBytes(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public Object getObject(int index) throws DataTypeException {
+		try {
+			return mRow.getObject(index);
+		} catch (net.rim.device.api.database.DataTypeException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.app.sqlite.backend.rim;
+
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Statement;
+
+/**
+ * A Statement backed by a RIM statement
+ * @author samkirton
+ */
+final class RimStatement implements Statement {
+	private net.rim.device.api.database.Statement mStatement;
+	
+	RimStatement(net.rim.device.api.database.Statement statement) {
+		mStatement = statement;
+	}
+	
+	public void prepare() throws DatabaseException {
+		try {
+			mStatement.prepare();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, String value) throws DatabaseException {
+		try {
+			mStatement.bind(index, value);
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, long value) throws DatabaseException {
+		try {
+			mStatement.bind(index, value);
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, int value) throws DatabaseException {
+		try {
+			mStatement.bind(index, value);
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, double value) throws DatabaseException {
+		try {
+			mStatement.bind(index, value);
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void bind(int index, byte[] value) throws DatabaseException {
+		try {
+			if (value instanceof byte[]) {
+				mStatement.bind(index, value);
+			} else {
+				mStatement.bind(index, (String)null);
+			}
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void bindNull(int index) throws DatabaseException {
+		// the RIM API binds NULL for a null String
+		bind(index, (String)null);
+	}
+	
+	public void execute() throws DatabaseException {
+		try {
+			mStatement.execute();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public Cursor getCursor() throws DatabaseException {
+		try {
+			return new RimCursor(mStatement.getCursor());
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void reset() throws DatabaseException {
+		try {
+			mStatement.reset();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+	
+	public void close() throws DatabaseException {
+		try {
+			mStatement.close();
+		} catch (net.rim.device.api.database.DatabaseException e) {
+			throw RimBackend.wrap(e);
+		}
+	}
+}
@@ -5,11 +5,24 @@ import java.util.Hashtable;
 /**
  * The base class for all database Model classes, each model class
  * is responsible for defining a DatabaseField[] that defines the name 
- * and types that can be stored in the database
+ * and types that can be stored in the database. Values are stored in typed
+ * arrays (long, int, double and Object) with a null bitmap so the typed 
+ * accessors never box, the DatabaseField objects read and write through to 
+ * that storage once the model has been used. Each write marks its column as
+ * dirty until markClean() is called, the provider calls it once a model has been
+ * loaded or written so update() only writes the columns changed since
  * @author samkirton
  */
 public abstract class BaseModel {
 	protected Hashtable fields;
+	private ModelMetadata mMetadata;
+	private DatabaseField[] mFieldArray;
+	private long[] mLongs;
+	private int[] mInts;
+	private double[] mDoubles;
+	private Object[] mObjects;
+	private int[] mNulls;
+	private int[] mDirty;
 	
 	public static final String FIELD_PID = "pid";
 	
@@ -18,12 +31,20 @@ public abstract class BaseModel {
 	public static final int TYPE_PRIMARY_KEY = 2;
 	public static final int TYPE_INTEGER = 3;
 	public static final int TYPE_FLOAT = 4;
+	public static final int TYPE_BLOB = 5;
+	
+	// TYPE_FLOAT columns are stored and bound as doubles, this is the same type
+	public static final int TYPE_DOUBLE = TYPE_FLOAT;
 	
 	public BaseModel() {
 		fields = new Hashtable();
 		fields.put(FIELD_PID,  new DatabaseField(TYPE_PRIMARY_KEY));
 	}
 	
+	/**
+	 * @return	The primary key or null if the model has not been stored, 
+	 * getLong(FIELD_PID) reads it without allocating a Long
+	 */
 	public Long getPid() {
 		return (Long)((DatabaseField)fields.get(FIELD_PID)).getValue();
 	}
@@ -32,6 +53,372 @@ public abstract class BaseModel {
 		((DatabaseField)fields.get(key)).setValue(value);
 	}
 	
+	/**
+	 * @return	The metadata shared by every instance of this model class
+	 */
+	public ModelMetadata getMetadata() {
+		if (!(mMetadata instanceof ModelMetadata)) {
+			mMetadata = ModelMetadata.forModel(this);
+		}
+		
+		return mMetadata;
+	}
+	
+	/**
+	 * Get a field by its column index in the model metadata, the fields are resolved
+	 * once per instance so reading them in column order needs no hash lookups
+	 * @param	column	The column index from getMetadata()
+	 * @return	The field of the column
+	 */
+	public DatabaseField getField(int column) {
+		ensureStorage();
+		return mFieldArray[column];
+	}
+	
+	/**
+	 * @return	The column index of the named field
+	 * @throws	IllegalArgumentException	The model has no field with this name
+	 */
+	public int getColumnIndex(String key) {
+		int column = getMetadata().getColumnIndex(key);
+		if (column == -1) {
+			throw new IllegalArgumentException("Unknown field: " + key);
+		}
+		
+		return column;
+	}
+	
+	public boolean isNull(int column) {
+		ensureStorage();
+		return (mNulls[column >> 5] & (1 << (column & 31))) != 0;
+	}
+	
+	public boolean isNull(String key) {
+		return isNull(getColumnIndex(key));
+	}
+	
+	public void setNull(int column) {
+		ensureStorage();
+		setStored(column, true);
+		if (mMetadata.getStorageType(column) == ModelMetadata.STORAGE_OBJECT) {
+			mObjects[mMetadata.getSlot(column)] = null;
+		}
+	}
+	
+	public void setNull(String key) {
+		setNull(getColumnIndex(key));
+	}
+	
+	/**
+	 * @return	Has the column been written since the model was loaded or last written?
+	 */
+	public boolean isDirty(int column) {
+		ensureStorage();
+		return (mDirty[column >> 5] & (1 << (column & 31))) != 0;
+	}
+	
+	public boolean isDirty(String key) {
+		return isDirty(getColumnIndex(key));
+	}
+	
+	/**
+	 * @return	Has any column been written since the model was loaded or last written?
+	 */
+	public boolean isDirty() {
+		ensureStorage();
+		for (int i = 0; i < mDirty.length; i++) {
+			if (mDirty[i] != 0) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return	The indexes of the dirty columns in column order
+	 */
+	public int[] getDirtyColumns() {
+		ensureStorage();
+		int count = 0;
+		for (int i = 0; i < mDirty.length; i++) {
+			count += bitCount(mDirty[i]);
+		}
+		
+		int[] columns = new int[count];
+		int next = 0;
+		for (int column = 0; next < count; column++) {
+			if ((mDirty[column >> 5] & (1 << (column & 31))) != 0) {
+				columns[next++] = column;
+			}
+		}
+		
+		return columns;
+	}
+	
+	/**
+	 * Forget the changes, the current values are taken to be the stored values
+	 */
+	public void markClean() {
+		ensureStorage();
+		for (int i = 0; i < mDirty.length; i++) {
+			mDirty[i] = 0;
+		}
+	}
+	
+	/**
+	 * @return	The value of a TYPE_LONG or TYPE_PRIMARY_KEY column, 0 when it is null
+	 */
+	public long getLong(int column) {
+		checkStorage(column, ModelMetadata.STORAGE_LONG);
+		return mLongs[mMetadata.getSlot(column)];
+	}
+	
+	public long getLong(String key) {
+		return getLong(getColumnIndex(key));
+	}
+	
+	public void setLong(int column, long value) {
+		checkStorage(column, ModelMetadata.STORAGE_LONG);
+		mLongs[mMetadata.getSlot(column)] = value;
+		setStored(column, false);
+	}
+	
+	public void setLong(String key, long value) {
+		setLong(getColumnIndex(key), value);
+	}
+	
+	/**
+	 * @return	The value of a TYPE_INTEGER column, 0 when it is null
+	 */
+	public int getInt(int column) {
+		checkStorage(column, ModelMetadata.STORAGE_INT);
+		return mInts[mMetadata.getSlot(column)];
+	}
+	
+	public int getInt(String key) {
+		return getInt(getColumnIndex(key));
+	}
+	
+	public void setInt(int column, int value) {
+		checkStorage(column, ModelMetadata.STORAGE_INT);
+		mInts[mMetadata.getSlot(column)] = value;
+		setStored(column, false);
+	}
+	
+	public void setInt(String key, int value) {
+		setInt(getColumnIndex(key), value);
+	}
+	
+	/**
+	 * @return	The value of a TYPE_FLOAT or TYPE_DOUBLE column, 0 when it is null
+	 */
+	public double getDouble(int column) {
+		checkStorage(column, ModelMetadata.STORAGE_DOUBLE);
+		return mDoubles[mMetadata.getSlot(column)];
+	}
+	
+	public double getDouble(String key) {
+		return getDouble(getColumnIndex(key));
+	}
+	
+	public void setDouble(int column, double value) {
+		checkStorage(column, ModelMetadata.STORAGE_DOUBLE);
+		mDoubles[mMetadata.getSlot(column)] = value;
+		setStored(column, false);
+	}
+	
+	public void setDouble(String key, double value) {
+		setDouble(getColumnIndex(key), value);
+	}
+	
+	/**
+	 * @return	The value of a TYPE_STRING column, null when it is null or holds
+	 * an object that is not a String
+	 */
+	public String getString(int column) {
+		checkStorage(column, ModelMetadata.STORAGE_OBJECT);
+		Object value = mObjects[mMetadata.getSlot(column)];
+		return value instanceof String ? (String)value : null;
+	}
+	
+	public String getString(String key) {
+		return getString(getColumnIndex(key));
+	}
+	
+	public void setString(int column, String value) {
+		checkStorage(column, ModelMetadata.STORAGE_OBJECT);
+		mObjects[mMetadata.getSlot(column)] = value;
+		setStored(column, !(value instanceof String));
+	}
+	
+	public void setString(String key, String value) {
+		setString(getColumnIndex(key), value);
+	}
+	
+	/**
+	 * @return	The value of a TYPE_BLOB column, null when it is null or holds an object
+	 * that is not a byte[]. The array is not copied
+	 */
+	public byte[] getBlob(int column) {
+		checkStorage(column, ModelMetadata.STORAGE_OBJECT);
+		Object value = mObjects[mMetadata.getSlot(column)];
+		return value instanceof byte[] ? (byte[])value : null;
+	}
+	
+	public byte[] getBlob(String key) {
+		return getBlob(getColumnIndex(key));
+	}
+	
+	/**
+	 * @param	value	The value, the array is not copied so it must not be changed afterwards
+	 */
+	public void setBlob(int column, byte[] value) {
+		checkStorage(column, ModelMetadata.STORAGE_OBJECT);
+		mObjects[mMetadata.getSlot(column)] = value;
+		setStored(column, !(value instanceof byte[]));
+	}
+	
+	public void setBlob(String key, byte[] value) {
+		setBlob(getColumnIndex(key), value);
+	}
+	
+	/**
+	 * Read a value as an object, a compatibility layer for DatabaseField.getValue()
+	 * @return	A Long, Integer, Double or the stored object, null when the value is null
+	 */
+	public Object getValue(int column) {
+		if (isNull(column)) {
+			return null;
+		}
+		
+		int slot = mMetadata.getSlot(column);
+		switch (mMetadata.getStorageType(column)) {
+			case ModelMetadata.STORAGE_LONG:
+				return new Long(mLongs[slot]);
+			case ModelMetadata.STORAGE_INT:
+				return new Integer(mInts[slot]);
+			case ModelMetadata.STORAGE_DOUBLE:
+				return new Double(mDoubles[slot]);
+			default:
+				return mObjects[slot];
+		}
+	}
+	
+	/**
+	 * Write a value as an object, a compatibility layer for DatabaseField.setValue(). 
+	 * Numbers are converted to the type of the column, a value that cannot be 
+	 * converted is stored as null
+	 */
+	public void setValue(int column, Object value) {
+		ensureStorage();
+		int slot = mMetadata.getSlot(column);
+		switch (mMetadata.getStorageType(column)) {
+			case ModelMetadata.STORAGE_LONG:
+				if (value instanceof Long) {
+					mLongs[slot] = ((Long)value).longValue();
+				} else if (value instanceof Integer) {
+					mLongs[slot] = ((Integer)value).intValue();
+				} else {
+					value = null;
+				}
+				break;
+			case ModelMetadata.STORAGE_INT:
+				if (value instanceof Integer) {
+					mInts[slot] = ((Integer)value).intValue();
+				} else if (value instanceof Long) {
+					mInts[slot] = (int)((Long)value).longValue();
+				} else {
+					value = null;
+				}
+				break;
+			case ModelMetadata.STORAGE_DOUBLE:
+				if (value instanceof Double) {
+					mDoubles[slot] = ((Double)value).doubleValue();
+				} else if (value instanceof Float) {
+					mDoubles[slot] = ((Float)value).floatValue();
+				} else if (value instanceof Long) {
+					mDoubles[slot] = ((Long)value).longValue();
+				} else if (value instanceof Integer) {
+					mDoubles[slot] = ((Integer)value).intValue();
+				} else {
+					value = null;
+				}
+				break;
+			default:
+				mObjects[slot] = value;
+				break;
+		}
+		
+		setStored(column, !(value instanceof Object));
+	}
+	
+	/**
+	 * Allocate the typed storage and attach the DatabaseField objects to it, values
+	 * set on the fields before this point are moved into the storage
+	 */
+	private void ensureStorage() {
+		if (mNulls instanceof int[]) {
+			return;
+		}
+		
+		ModelMetadata metadata = getMetadata();
+		int columnCount = metadata.getColumnCount();
+		mLongs = new long[metadata.getSlotCount(ModelMetadata.STORAGE_LONG)];
+		mInts = new int[metadata.getSlotCount(ModelMetadata.STORAGE_INT)];
+		mDoubles = new double[metadata.getSlotCount(ModelMetadata.STORAGE_DOUBLE)];
+		mObjects = new Object[metadata.getSlotCount(ModelMetadata.STORAGE_OBJECT)];
+		mNulls = new int[(columnCount + 31) >> 5];
+		for (int i = 0; i < mNulls.length; i++) {
+			mNulls[i] = -1;
+		}
+		
+		mDirty = new int[mNulls.length];
+		
+		Hashtable fieldHashTable = getFields();
+		mFieldArray = new DatabaseField[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			mFieldArray[i] = (DatabaseField)fieldHashTable.get(metadata.getColumnName(i));
+			mFieldArray[i].attach(this, i);
+		}
+		
+		// only the values set on the fields before this point are changes
+		for (int i = 0; i < mDirty.length; i++) {
+			mDirty[i] = ~mNulls[i];
+		}
+	}
+	
+	private void checkStorage(int column, int storageType) {
+		ensureStorage();
+		if (mMetadata.getStorageType(column) != storageType) {
+			throw new IllegalArgumentException("Field " + mMetadata.getColumnName(column) + " has a different type");
+		}
+	}
+	
+	/**
+	 * Record a write to a column, every setter goes through here
+	 * @param	isNull	Is the written value null?
+	 */
+	private void setStored(int column, boolean isNull) {
+		if (isNull) {
+			mNulls[column >> 5] |= 1 << (column & 31);
+		} else {
+			mNulls[column >> 5] &= ~(1 << (column & 31));
+		}
+		
+		mDirty[column >> 5] |= 1 << (column & 31);
+	}
+	
+	private static int bitCount(int bits) {
+		int count = 0;
+		while (bits != 0) {
+			bits &= bits - 1;
+			count++;
+		}
+		
+		return count;
+	}
+	
 	/**
 	 * @return	The table name that this model relates to
 	 */
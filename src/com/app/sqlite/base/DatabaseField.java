@@ -2,12 +2,16 @@ package com.app.sqlite.base;
 
 /**
  * An object that represents a database field, the SQLProvider will use
- * this field to populate a SQL query with the correct value or type
+ * this field to populate a SQL query with the correct value or type. Once
+ * the owning model has allocated its typed storage the field reads and writes
+ * its value through the model, the type must not change after that point
  * @author samkirton
  */
 public final class DatabaseField {
 	private int mType;
 	private Object mValue;
+	private BaseModel mOwner;
+	private int mColumn;
 	
 	public int getType() {
 		return mType;
@@ -18,11 +22,32 @@ public final class DatabaseField {
 	}
 	
 	public Object getValue() {
+		if (mOwner instanceof BaseModel) {
+			return mOwner.getValue(mColumn);
+		}
+		
 		return mValue;
 	}
 	
 	public void setValue(Object newVal) {
-		mValue = newVal;
+		if (mOwner instanceof BaseModel) {
+			mOwner.setValue(mColumn, newVal);
+		} else {
+			mValue = newVal;
+		}
+	}
+	
+	/**
+	 * Store the value of this field in the typed storage of a model
+	 * @param	owner	The model that owns the field
+	 * @param	column	The column index of the field in the model metadata
+	 */
+	void attach(BaseModel owner, int column) {
+		Object value = mValue;
+		mValue = null;
+		mOwner = owner;
+		mColumn = column;
+		owner.setValue(column, value);
 	}
 	
 	/**
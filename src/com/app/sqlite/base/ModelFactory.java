@@ -0,0 +1,12 @@
+package com.app.sqlite.base;
+
+/**
+ * Creates empty model instances for the typed read methods of the SQLProvider
+ * @author samkirton
+ */
+public interface ModelFactory {
+	/**
+	 * @return	A new empty instance of the model
+	 */
+	public BaseModel createModel();
+}
@@ -0,0 +1,368 @@
+package com.app.sqlite.base;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+/**
+ * The schema of a model class, built once from the DatabaseField table of the
+ * first instance and shared by every instance of the class. Columns are held in
+ * a stable order, the primary key first and then the other columns by name, so
+ * the INSERT, UPDATE and SELECT queries can be built once and reused. The UPDATE
+ * queries of a subset of the columns are built on first use and cached
+ * @author samkirton
+ */
+public final class ModelMetadata {
+	private String mTableName;
+	private String[] mColumnNames;
+	private int[] mColumnTypes;
+	private int[] mBindIndexes;
+	private int[] mStorageTypes;
+	private int[] mSlots;
+	private int[] mSlotCounts;
+	private Hashtable mColumnIndexes;
+	private int mPrimaryKeyIndex = -1;
+	private String mInsertQuery;
+	private String mUpdateQuery;
+	private Hashtable mColumnUpdateQueries;
+	private String mInsertWithKeyQuery;
+	private String mExistsQuery;
+	private String mSelectQuery;
+	
+	private static final Hashtable sMetadata = new Hashtable();
+	
+	static final int STORAGE_LONG = 0;
+	static final int STORAGE_INT = 1;
+	static final int STORAGE_DOUBLE = 2;
+	static final int STORAGE_OBJECT = 3;
+	
+	/**
+	 * Get the metadata of the class of the provided model, building it from the
+	 * model on the first call
+	 * @param	model	An instance of the model class
+	 * @return	The metadata shared by every instance of the model class
+	 */
+	public static ModelMetadata forModel(BaseModel model) {
+		synchronized (sMetadata) {
+			ModelMetadata metadata = (ModelMetadata)sMetadata.get(model.getClass());
+			if (!(metadata instanceof ModelMetadata)) {
+				metadata = new ModelMetadata(model.getTableName(), model.getFields());
+				sMetadata.put(model.getClass(), metadata);
+			}
+			
+			return metadata;
+		}
+	}
+	
+	private ModelMetadata(String tableName, Hashtable fieldHashTable) {
+		mTableName = tableName;
+		
+		int columnCount = fieldHashTable.size();
+		mColumnNames = new String[columnCount];
+		mColumnTypes = new int[columnCount];
+		mBindIndexes = new int[columnCount];
+		mStorageTypes = new int[columnCount];
+		mSlots = new int[columnCount];
+		mSlotCounts = new int[4];
+		mColumnIndexes = new Hashtable();
+		mColumnUpdateQueries = new Hashtable();
+		
+		// sort the columns by name with the primary key first
+		int count = 0;
+		Enumeration keys = fieldHashTable.keys();
+		while (keys.hasMoreElements()) {
+			String key = (String)keys.nextElement();
+			int i = count++;
+			while (i > 0 && compareColumns(fieldHashTable, key, mColumnNames[i - 1]) < 0) {
+				mColumnNames[i] = mColumnNames[i - 1];
+				i--;
+			}
+			mColumnNames[i] = key;
+		}
+		
+		int bindIndex = 1;
+		for (int i = 0; i < columnCount; i++) {
+			mColumnTypes[i] = ((DatabaseField)fieldHashTable.get(mColumnNames[i])).getType();
+			mColumnIndexes.put(mColumnNames[i], new Integer(i));
+			if (mColumnTypes[i] == BaseModel.TYPE_PRIMARY_KEY) {
+				mPrimaryKeyIndex = i;
+				mBindIndexes[i] = -1;
+			} else {
+				mBindIndexes[i] = bindIndex++;
+			}
+			
+			// each column gets a slot in the storage array of its type
+			mStorageTypes[i] = storageTypeOf(mColumnTypes[i]);
+			mSlots[i] = mSlotCounts[mStorageTypes[i]]++;
+		}
+		
+		mInsertQuery = buildInsertQuery();
+		mUpdateQuery = buildUpdateQuery();
+		mInsertWithKeyQuery = buildInsertWithKeyQuery();
+		mExistsQuery = buildExistsQuery();
+		mSelectQuery = buildSelectQuery();
+	}
+	
+	public String getTableName() {
+		return mTableName;
+	}
+	
+	public int getColumnCount() {
+		return mColumnNames.length;
+	}
+	
+	public String getColumnName(int column) {
+		return mColumnNames[column];
+	}
+	
+	/**
+	 * @return	The type of the column, one of the BaseModel TYPE_ constants
+	 */
+	public int getColumnType(int column) {
+		return mColumnTypes[column];
+	}
+	
+	/**
+	 * @return	The placeholder index of the column in the INSERT query, -1 for the primary key
+	 */
+	public int getBindIndex(int column) {
+		return mBindIndexes[column];
+	}
+	
+	/**
+	 * @return	The storage array a column is held in, one of the STORAGE_ constants
+	 */
+	int getStorageType(int column) {
+		return mStorageTypes[column];
+	}
+	
+	/**
+	 * @return	The index of the column in the storage array of its type
+	 */
+	int getSlot(int column) {
+		return mSlots[column];
+	}
+	
+	/**
+	 * @return	The number of slots in the storage array of the provided type
+	 */
+	int getSlotCount(int storageType) {
+		return mSlotCounts[storageType];
+	}
+	
+	/**
+	 * @return	The index of the named column or -1 if the model has no such column
+	 */
+	public int getColumnIndex(String columnName) {
+		Integer index = (Integer)mColumnIndexes.get(columnName);
+		return index instanceof Integer ? index.intValue() : -1;
+	}
+	
+	/**
+	 * @return	The index of the primary key column or -1 if the model has none
+	 */
+	public int getPrimaryKeyIndex() {
+		return mPrimaryKeyIndex;
+	}
+	
+	/**
+	 * @return	A copy of the column names in column order
+	 */
+	public String[] getColumnNames() {
+		String[] columnNames = new String[mColumnNames.length];
+		System.arraycopy(mColumnNames, 0, columnNames, 0, mColumnNames.length);
+		return columnNames;
+	}
+	
+	/**
+	 * @return	INSERT INTO [table] ([columns]) VALUES (null, ?, ...), every column other
+	 * than the primary key is bound at getBindIndex()
+	 */
+	public String getInsertQuery() {
+		return mInsertQuery;
+	}
+	
+	/**
+	 * @return	UPDATE [table] SET [column] = ?, ... WHERE pid = ?, every column other than
+	 * the primary key is bound at getBindIndex() and the primary key is bound last
+	 */
+	public String getUpdateQuery() {
+		return mUpdateQuery;
+	}
+	
+	/**
+	 * @param	columns	The indexes of the columns to write in column order, without the primary key
+	 * @return	UPDATE [table] SET [column] = ?, ... WHERE pid = ?, the columns are bound
+	 * from 1 in the order provided and the primary key is bound last
+	 */
+	public String getUpdateQuery(int[] columns) {
+		StringBuffer key = new StringBuffer(columns.length * 3);
+		for (int i = 0; i < columns.length; i++) {
+			key.append(columns[i]);
+			key.append(',');
+		}
+		
+		synchronized (mColumnUpdateQueries) {
+			String query = (String)mColumnUpdateQueries.get(key.toString());
+			if (!(query instanceof String)) {
+				query = buildUpdateQuery(columns);
+				mColumnUpdateQueries.put(key.toString(), query);
+			}
+			
+			return query;
+		}
+	}
+	
+	/**
+	 * @return	INSERT INTO [table] ([columns], pid) VALUES (?, ...), every column other 
+	 * than the primary key is bound at getBindIndex() and the primary key is bound last
+	 */
+	public String getInsertWithKeyQuery() {
+		return mInsertWithKeyQuery;
+	}
+	
+	/**
+	 * @return	SELECT 1 FROM [table] WHERE pid = ?
+	 */
+	public String getExistsQuery() {
+		return mExistsQuery;
+	}
+	
+	/**
+	 * @return	SELECT [columns] FROM [table] with the columns in column order
+	 */
+	public String getSelectQuery() {
+		return mSelectQuery;
+	}
+	
+	private String buildInsertQuery() {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("INSERT INTO ");
+		stringBuffer.append(mTableName);
+		stringBuffer.append(" (");
+		appendColumns(stringBuffer);
+		stringBuffer.append(") VALUES (");
+		for (int i = 0; i < mColumnNames.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(i == mPrimaryKeyIndex ? "null" : "?");
+		}
+		stringBuffer.append(")");
+		return stringBuffer.toString();
+	}
+	
+	private String buildUpdateQuery() {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("UPDATE ");
+		stringBuffer.append(mTableName);
+		stringBuffer.append(" SET ");
+		boolean first = true;
+		for (int i = 0; i < mColumnNames.length; i++) {
+			if (i != mPrimaryKeyIndex) {
+				if (!first) {
+					stringBuffer.append(", ");
+				}
+				stringBuffer.append(mColumnNames[i]);
+				stringBuffer.append(" = ?");
+				first = false;
+			}
+		}
+		stringBuffer.append(" WHERE ");
+		stringBuffer.append(BaseModel.FIELD_PID);
+		stringBuffer.append(" = ?");
+		return stringBuffer.toString();
+	}
+	
+	private String buildUpdateQuery(int[] columns) {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("UPDATE ");
+		stringBuffer.append(mTableName);
+		stringBuffer.append(" SET ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(mColumnNames[columns[i]]);
+			stringBuffer.append(" = ?");
+		}
+		stringBuffer.append(" WHERE ");
+		stringBuffer.append(BaseModel.FIELD_PID);
+		stringBuffer.append(" = ?");
+		return stringBuffer.toString();
+	}
+	
+	private String buildInsertWithKeyQuery() {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("INSERT INTO ");
+		stringBuffer.append(mTableName);
+		stringBuffer.append(" (");
+		for (int i = 0; i < mColumnNames.length; i++) {
+			if (i != mPrimaryKeyIndex) {
+				stringBuffer.append(mColumnNames[i]);
+				stringBuffer.append(", ");
+			}
+		}
+		stringBuffer.append(BaseModel.FIELD_PID);
+		stringBuffer.append(") VALUES (");
+		for (int i = 0; i < mColumnNames.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append("?");
+		}
+		stringBuffer.append(")");
+		return stringBuffer.toString();
+	}
+	
+	private String buildExistsQuery() {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("SELECT 1 FROM ");
+		stringBuffer.append(mTableName);
+		stringBuffer.append(" WHERE ");
+		stringBuffer.append(BaseModel.FIELD_PID);
+		stringBuffer.append(" = ?");
+		return stringBuffer.toString();
+	}
+	
+	private String buildSelectQuery() {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("SELECT ");
+		appendColumns(stringBuffer);
+		stringBuffer.append(" FROM ");
+		stringBuffer.append(mTableName);
+		return stringBuffer.toString();
+	}
+	
+	private void appendColumns(StringBuffer stringBuffer) {
+		for (int i = 0; i < mColumnNames.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(mColumnNames[i]);
+		}
+	}
+	
+	private static int storageTypeOf(int type) {
+		switch (type) {
+			case BaseModel.TYPE_LONG:
+			case BaseModel.TYPE_PRIMARY_KEY:
+				return STORAGE_LONG;
+			case BaseModel.TYPE_INTEGER:
+				return STORAGE_INT;
+			case BaseModel.TYPE_FLOAT:
+				return STORAGE_DOUBLE;
+			default:
+				return STORAGE_OBJECT;
+		}
+	}
+	
+	private static int compareColumns(Hashtable fieldHashTable, String left, String right) {
+		boolean leftKey = ((DatabaseField)fieldHashTable.get(left)).getType() == BaseModel.TYPE_PRIMARY_KEY;
+		boolean rightKey = ((DatabaseField)fieldHashTable.get(right)).getType() == BaseModel.TYPE_PRIMARY_KEY;
+		if (leftKey != rightKey) {
+			return leftKey ? -1 : 1;
+		}
+		
+		return left.compareTo(right);
+	}
+}
@@ -3,29 +3,37 @@ package com.app.sqlite.helper;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
+import com.app.sqlite.backend.BackendFactory;
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseBackend;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.DatabaseIOException;
+import com.app.sqlite.backend.Statement;
 import com.app.sqlite.base.DatabaseField;
 import com.app.sqlite.base.BaseModel;
 
-import net.rim.device.api.database.Cursor;
-import net.rim.device.api.database.Database;
-import net.rim.device.api.database.DatabaseException;
-import net.rim.device.api.database.DatabaseFactory;
-import net.rim.device.api.database.DatabaseIOException;
-import net.rim.device.api.database.Statement;
-import net.rim.device.api.io.URI;
-
 public final class DatabaseHelper {
 	/**
-	 * Create a database at the provided databasePath
+	 * Create a database at the provided databasePath with the default backend
 	 * @param	databasePath	The path to create the database
 	 * @return	A database object that relates to the created database
 	 */
 	public static Database openOrCreate(String databasePath) {
+		return openOrCreate(BackendFactory.getDefault(), databasePath);
+	}
+	
+	/**
+	 * Create a database at the provided databasePath
+	 * @param	backend	The backend that creates the database
+	 * @param	databasePath	The path to create the database
+	 * @return	A database object that relates to the created database
+	 */
+	public static Database openOrCreate(DatabaseBackend backend, String databasePath) {
 		Database database = null;
 		
 		try {
-			URI databaseUri = URI.create(databasePath);
-			database = DatabaseFactory.openOrCreate(databaseUri);
+			database = backend.openOrCreate(databasePath);
 		} catch (Exception e) {
 			System.out.println(e.getMessage());
 			e.printStackTrace();
@@ -35,16 +43,25 @@ public final class DatabaseHelper {
 	}
 	
 	/**
-	 * Open the database at the provided databasePath
+	 * Open the database at the provided databasePath with the default backend
 	 * @param	databasePath	The path to create the database
 	 * @return	A database object that relates to the created database
 	 */
 	public static Database open(String databasePath) {
+		return open(BackendFactory.getDefault(), databasePath);
+	}
+	
+	/**
+	 * Open the database at the provided databasePath
+	 * @param	backend	The backend that opens the database
+	 * @param	databasePath	The path to create the database
+	 * @return	A database object that relates to the created database
+	 */
+	public static Database open(DatabaseBackend backend, String databasePath) {
 		Database database = null;
 		
 		try {
-			URI databaseUri = URI.create(databasePath);
-			database = DatabaseFactory.open(databaseUri);
+			database = backend.open(databasePath);
 		} catch (Exception e) {
 			System.out.println(e.getMessage());
 			e.printStackTrace();
@@ -54,40 +71,46 @@ public final class DatabaseHelper {
 	}
 	
 	/**
-	 * Starts a database transaction
+	 * Starts a database transaction, SQLProvider.beginTransaction() starts one that 
+	 * the provider calls take part in
+	 * @throws	DatabaseException	The transaction could not be started
 	 */
-	public void beginTransaction(Database database) {
-		try {
-			database.beginTransaction();
-		} catch (DatabaseException e) { }
+	public static void beginTransaction(Database database) throws DatabaseException {
+		database.beginTransaction();
 	}
 	
 	/**
 	 * Rollback a database transaction
+	 * @throws	DatabaseException	The rollback failed, the transaction may still be open
 	 */
-	public void rollbackTransaction(Database database) {
-		try {
-			database.rollbackTransaction();
-		} catch (DatabaseException e) { }
+	public static void rollbackTransaction(Database database) throws DatabaseException {
+		database.rollbackTransaction();
 	}
 	
 	/**
 	 * Commits a database transaction
+	 * @throws	DatabaseException	The commit failed and nothing was written
 	 */
-	public void commitTransaction(Database database) {
-		try {
-			database.commitTransaction();
-		} catch (DatabaseException e) { }
+	public static void commitTransaction(Database database) throws DatabaseException {
+		database.commitTransaction();
 	}
 	
 	/**
-	 * Deletes the database at the provided path
+	 * Deletes the database at the provided path with the default backend
 	 * @param	databasePath	The path of the database that should be removed
 	 */
 	public static void deleteDatabase(String databasePath) {
+		deleteDatabase(BackendFactory.getDefault(), databasePath);
+	}
+	
+	/**
+	 * Deletes the database at the provided path
+	 * @param	backend	The backend that owns the database
+	 * @param	databasePath	The path of the database that should be removed
+	 */
+	public static void deleteDatabase(DatabaseBackend backend, String databasePath) {
 		try {
-			URI databaseUri = URI.create(databasePath);
-			DatabaseFactory.delete(databaseUri);
+			backend.delete(databasePath);
 		} catch (Exception e) {
 			System.out.println(e.getMessage());
 			e.printStackTrace();
@@ -95,16 +118,25 @@ public final class DatabaseHelper {
 	}
 	
 	/**
-	 * Does the SQLite database exist
+	 * Does the SQLite database exist, checked with the default backend
 	 * @param	databasePath	The path to the SQLite database
 	 * @return	Does the SQLite database exist?
 	 */
 	public static boolean databaseExists(String databasePath) {
+		return databaseExists(BackendFactory.getDefault(), databasePath);
+	}
+	
+	/**
+	 * Does the SQLite database exist
+	 * @param	backend	The backend that owns the database
+	 * @param	databasePath	The path to the SQLite database
+	 * @return	Does the SQLite database exist?
+	 */
+	public static boolean databaseExists(DatabaseBackend backend, String databasePath) {
 		boolean databaseExists = false;
 		
 		try {
-			URI databaseUri = URI.create(databasePath);
-			if (DatabaseFactory.exists(databaseUri)) {
+			if (backend.exists(databasePath)) {
 				databaseExists = true;
 			}
 		} catch (Exception e) {
@@ -128,6 +160,34 @@ public final class DatabaseHelper {
 		}
 	}
 	
+	/**
+	 * Close the provided statement object
+	 * @param	statement	Statement to close
+	 */
+	public static void closeStatement(Statement statement) {
+		if (statement instanceof Statement) {
+			try {
+				statement.close();
+			} catch (DatabaseException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Close the provided cursor object
+	 * @param	cursor	Cursor to close
+	 */
+	public static void closeCursor(Cursor cursor) {
+		if (cursor instanceof Cursor) {
+			try {
+				cursor.close();
+			} catch (DatabaseException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
 	/**
 	 * Execute a write query
 	 * @param	databasePath	The path to the SQLite database
@@ -137,21 +197,121 @@ public final class DatabaseHelper {
 	public static boolean executeWriteQuery(String query, Database database) {
 		boolean queryExecuted = false;
 		
+		Statement statement = null;
 		try {			
-			Statement statement = database.createStatement(query);
+			statement = database.createStatement(query);
 			statement.prepare();
 			statement.execute();
-			statement.close();
 			
 			queryExecuted = true;
 		} catch (Exception e) { 
 			System.out.println(e.getMessage());
 			e.printStackTrace();
+		} finally {
+			closeStatement(statement);
 		}
 		
 		return queryExecuted;
 	}
 	
+	/**
+	 * Does the query change the database schema? Statements prepared before
+	 * a schema change should not be reused
+	 * @param	query	The query to check
+	 * @return	Is the query a CREATE, DROP or ALTER statement?
+	 */
+	public static boolean isSchemaQuery(String query) {
+		int start = 0;
+		while (start < query.length() && query.charAt(start) <= ' ') {
+			start++;
+		}
+		
+		return query.regionMatches(true, start, "CREATE", 0, 6) || 
+			query.regionMatches(true, start, "DROP", 0, 4) || 
+			query.regionMatches(true, start, "ALTER", 0, 5);
+	}
+	
+	/**
+	 * Find the table written by an INSERT, REPLACE, UPDATE or DELETE query
+	 * @param	query	The query to inspect
+	 * @return	The lower case table name or null if the query is not a recognised
+	 * write, such as a schema query or a query that starts with a comment
+	 */
+	public static String getWriteTableName(String query) {
+		int position = skipWhitespace(query, 0);
+		if (query.regionMatches(true, position, "INSERT", 0, 6)) {
+			position = skipConflictClause(query, skipWhitespace(query, position + 6));
+			position = skipKeyword(query, position, "INTO");
+		} else if (query.regionMatches(true, position, "REPLACE", 0, 7)) {
+			position = skipKeyword(query, skipWhitespace(query, position + 7), "INTO");
+		} else if (query.regionMatches(true, position, "UPDATE", 0, 6)) {
+			position = skipConflictClause(query, skipWhitespace(query, position + 6));
+		} else if (query.regionMatches(true, position, "DELETE", 0, 6)) {
+			position = skipKeyword(query, skipWhitespace(query, position + 6), "FROM");
+		} else {
+			return null;
+		}
+		
+		if (position == -1) {
+			return null;
+		}
+		
+		// read the name up to the first character that cannot be part of it
+		StringBuffer tableName = new StringBuffer();
+		for (int i = position; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (c == '"' || c == '`' || c == '[' || c == ']') {
+				continue;
+			} else if (c == '.') {
+				// the table of schema.table
+				tableName.setLength(0);
+			} else if (c <= ' ' || c == '(' || c == ',' || c == ';') {
+				break;
+			} else {
+				tableName.append(c);
+			}
+		}
+		
+		return tableName.length() > 0 ? tableName.toString().toLowerCase() : null;
+	}
+	
+	private static int skipWhitespace(String query, int position) {
+		while (position < query.length() && query.charAt(position) <= ' ') {
+			position++;
+		}
+		
+		return position;
+	}
+	
+	/**
+	 * @return	The position after the keyword and the whitespace that follows it or -1
+	 */
+	private static int skipKeyword(String query, int position, String keyword) {
+		if (!query.regionMatches(true, position, keyword, 0, keyword.length())) {
+			return -1;
+		}
+		
+		return skipWhitespace(query, position + keyword.length());
+	}
+	
+	/**
+	 * @return	The position after an OR REPLACE, OR IGNORE etc clause if there is one
+	 */
+	private static int skipConflictClause(String query, int position) {
+		// OR must be a whole word, UPDATE orders is not a conflict clause
+		if (!query.regionMatches(true, position, "OR", 0, 2) || position + 2 >= query.length() || 
+			query.charAt(position + 2) > ' ') {
+			return position;
+		}
+		
+		int next = skipWhitespace(query, position + 2);
+		while (next < query.length() && query.charAt(next) > ' ') {
+			next++;
+		}
+		
+		return skipWhitespace(query, next);
+	}
+	
 	/**
 	 * Get the lastInsertedRowID from the provided database object
 	 * @param	database	The database to get the lastInsertedRowID
@@ -190,7 +350,9 @@ public final class DatabaseHelper {
 	}
 	
 	/**
-	 * Builds an insert query 
+	 * Builds an insert query, the column order follows the Hashtable so it can differ
+	 * between tables with the same columns, ModelMetadata.getInsertQuery() is built
+	 * once per model class in a stable order
 	 * @param	tableName	The name of the table being queried
 	 * @param	fieldCount	Amount of fields to populate the insert query for	
 	 * @return	An insert query
@@ -205,21 +367,22 @@ public final class DatabaseHelper {
         Enumeration keys = fieldHashTable.keys();
         while(keys.hasMoreElements()) {
            String key = (String)keys.nextElement();
-           stringBuffer.append(key + ", ");
+           stringBuffer.append(key);
+           stringBuffer.append(", ");
         }
-        
+
         // remove the trailing comma and space 
         stringBuffer.delete(stringBuffer.length()-2, stringBuffer.length());
-        
+
         stringBuffer.append(") VALUES (");
-        
+		
 		// second pass to append values
         keys = fieldHashTable.keys();
         while(keys.hasMoreElements()) {
            String key = (String)keys.nextElement();
-            
+
             DatabaseField field = (DatabaseField)fieldHashTable.get(key);
-            
+
             if (field.getType() != BaseModel.TYPE_PRIMARY_KEY) {
             	stringBuffer.append("?, ");
             } else {
@@ -231,7 +394,36 @@ public final class DatabaseHelper {
 		stringBuffer.delete(stringBuffer.length()-2, stringBuffer.length());
 		
 		stringBuffer.append(")");
-
+		
+		return stringBuffer.toString();
+	}
+	
+	/**
+	 * Builds an insert query with a placeholder for each column
+	 * @param	tableName	The name of the table being queried
+	 * @param	columns	The columns to insert, in the order they are bound
+	 * @return	A string that contains INSERT INTO [tableName] ([columns]) VALUES (?, ...)
+	 */
+	public static String buildInsertQuery(String tableName, String[] columns) {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("INSERT INTO ");
+		stringBuffer.append(tableName);
+		stringBuffer.append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(columns[i]);
+		}
+		stringBuffer.append(") VALUES (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append("?");
+		}
+		stringBuffer.append(")");
+		
 		return stringBuffer.toString();
 	}
 	
@@ -245,7 +437,170 @@ public final class DatabaseHelper {
 	}
 	
 	/**
-	 * Builds a "SELECT * FROM Table where tableColumn = value" query
+	 * Builds a SELECT * query with an optional ORDER BY clause
+	 * @param	tableName	The table to SELECT * from
+	 * @param	columnOrderBy	The column to order the results by or null
+	 * @param	direction	The direction of the order, ASC or DESC, or null
+	 * @return	A string that contains SELECT * [tableName] ORDER BY [columnOrderBy] [direction]
+	 */
+	public static String buildSelectAllQuery(String tableName, String columnOrderBy, String direction) {
+		if (columnOrderBy instanceof String && direction instanceof String) {
+			return buildSelectAllQuery(tableName) + " ORDER BY " + columnOrderBy + " " + direction;
+		}
+		
+		return buildSelectAllQuery(tableName);
+	}
+	
+	/**
+	 * Builds a SELECT query of the provided columns with an optional ORDER BY clause
+	 * @param	tableName	The table to select from
+	 * @param	columns	The columns to select or null to SELECT *
+	 * @param	columnOrderBy	The column to order the results by or null
+	 * @param	direction	The direction of the order, ASC or DESC, or null
+	 * @return	A string that contains SELECT [columns] FROM [tableName] ORDER BY [columnOrderBy] [direction]
+	 */
+	public static String buildSelectQuery(String tableName, String[] columns, String columnOrderBy, String direction) {
+		if (!(columns instanceof String[]) || columns.length == 0) {
+			return buildSelectAllQuery(tableName, columnOrderBy, direction);
+		}
+		
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("SELECT ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(columns[i]);
+		}
+		stringBuffer.append(" FROM ");
+		stringBuffer.append(tableName);
+		
+		if (columnOrderBy instanceof String && direction instanceof String) {
+			stringBuffer.append(" ORDER BY " + columnOrderBy + " " + direction);
+		}
+		
+		return stringBuffer.toString();
+	}
+	
+	/**
+	 * Builds a DELETE query with an IN list of placeholders
+	 * @param	tableName	The table to delete the rows from
+	 * @param	columnName	The column matched against the list
+	 * @param	keyCount	The number of placeholders in the list
+	 * @return	A string that contains DELETE FROM [tableName] WHERE [columnName] IN (?, ...)
+	 */
+	public static String buildDeleteInQuery(String tableName, String columnName, int keyCount) {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append("DELETE FROM ");
+		stringBuffer.append(tableName);
+		stringBuffer.append(" WHERE ");
+		stringBuffer.append(columnName);
+		stringBuffer.append(" IN (");
+		for (int i = 0; i < keyCount; i++) {
+			if (i > 0) {
+				stringBuffer.append(",");
+			}
+			stringBuffer.append("?");
+		}
+		stringBuffer.append(")");
+		
+		return stringBuffer.toString();
+	}
+	
+	/**
+	 * Builds a keyset paged SELECT * query ordered by columnOrderBy and then pid. 
+	 * The placeholders are bound in this order: the where value when whereColumn is 
+	 * set, then for a page that follows a row either the ORDER BY value twice and 
+	 * the pid, or only the pid when the ORDER BY value was null or there is no 
+	 * ORDER BY column. A page after a non null value never includes the NULL rows, 
+	 * which sort last in DESC order and are read once the values run out by a page 
+	 * with afterNull but not afterRow, which selects every NULL row and binds no pid
+	 * @param	tableName	The table to query
+	 * @param	whereColumn	The column of an equality condition or null
+	 * @param	columnOrderBy	The column to order the results by or null to order by pid
+	 * @param	descending	Are the results in descending order?
+	 * @param	afterRow	Does the page start after a previous row?
+	 * @param	afterNull	Was the ORDER BY value of the previous row null? Without
+	 * afterRow the page starts at the first NULL row
+	 * @param	limit	The maximum number of rows to return
+	 * @return	The paged query
+	 */
+	public static String buildSelectPageQuery(String tableName, String whereColumn, String columnOrderBy, 
+			boolean descending, boolean afterRow, boolean afterNull, int limit) {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append(buildSelectAllQuery(tableName));
+		
+		String keyword = " WHERE ";
+		if (whereColumn instanceof String) {
+			stringBuffer.append(keyword);
+			stringBuffer.append(whereColumn);
+			stringBuffer.append(" = ?");
+			keyword = " AND ";
+		}
+		
+		String direction = descending ? " DESC" : " ASC";
+		String comparison = descending ? " < ?" : " > ?";
+		if (afterRow) {
+			stringBuffer.append(keyword);
+			if (!(columnOrderBy instanceof String)) {
+				stringBuffer.append(BaseModel.FIELD_PID + comparison);
+			} else if (afterNull) {
+				// NULL sorts first, the rest of the NULL rows by pid and then every value
+				stringBuffer.append("((" + columnOrderBy + " IS NULL AND " + BaseModel.FIELD_PID + comparison + ")");
+				if (!descending) {
+					stringBuffer.append(" OR " + columnOrderBy + " IS NOT NULL");
+				}
+				stringBuffer.append(")");
+			} else {
+				// the inclusive bound lets the ORDER BY index seek to the previous row, the 
+				// NULL rows that follow a DESC page are read by a separate NULL page query
+				String inclusive = descending ? " <= ?" : " >= ?";
+				stringBuffer.append(columnOrderBy + inclusive + " AND (" + columnOrderBy + comparison + " OR " + 
+					BaseModel.FIELD_PID + comparison + ")");
+			}
+		} else if (afterNull && columnOrderBy instanceof String) {
+			stringBuffer.append(keyword);
+			stringBuffer.append(columnOrderBy + " IS NULL");
+		}
+		
+		stringBuffer.append(" ORDER BY ");
+		if (columnOrderBy instanceof String) {
+			stringBuffer.append(columnOrderBy + direction + ", ");
+		}
+		stringBuffer.append(BaseModel.FIELD_PID + direction);
+		stringBuffer.append(" LIMIT ");
+		stringBuffer.append(limit);
+		
+		return stringBuffer.toString();
+	}
+	
+	/**
+	 * Bind values to the placeholders of a prepared statement in order
+	 * @param	statement	The prepared statement
+	 * @param	arguments	String, Long, Integer, Double or byte[] values, null binds NULL
+	 */
+	public static void bindArguments(Statement statement, Object[] arguments) throws DatabaseException {
+		for (int i = 0; i < arguments.length; i++) {
+			Object argument = arguments[i];
+			if (argument instanceof String) {
+				statement.bind(i + 1, (String)argument);
+			} else if (argument instanceof Long) {
+				statement.bind(i + 1, ((Long)argument).longValue());
+			} else if (argument instanceof Integer) {
+				statement.bind(i + 1, ((Integer)argument).intValue());
+			} else if (argument instanceof Double) {
+				statement.bind(i + 1, ((Double)argument).doubleValue());
+			} else if (argument instanceof byte[]) {
+				statement.bind(i + 1, (byte[])argument);
+			} else {
+				statement.bindNull(i + 1);
+			}
+		}
+	}
+	
+	/**
+	 * Builds a "SELECT * FROM Table where tableColumn = value" query, the value is 
+	 * written into the query without escaping, QueryBuilder binds it instead
 	 * @param	tableName	The table to query
 	 * @param	whereColumn	The column that the condition should be used on
 	 * @param	whereValue	The value that is being used with the condition
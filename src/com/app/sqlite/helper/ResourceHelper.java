@@ -1,9 +1,8 @@
 package com.app.sqlite.helper;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-import net.rim.device.api.io.IOUtilities;
-
 /**
  * Helper classes associated with 
  * @author samkirton
@@ -38,12 +37,18 @@ public final class ResourceHelper {
 		byte[] content = null;
 		
 		try {
-			content = IOUtilities.streamToBytes(inputStream);
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+			content = outputStream.toByteArray();
 		} catch (IOException e) { }
 		
 		return content;
 	}
-
+	
 	
 	/**
 	 * Close the InputStream and set the object to NULL to get the garbage
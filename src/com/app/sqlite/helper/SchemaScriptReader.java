@@ -0,0 +1,252 @@
+package com.app.sqlite.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Splits a SQL script into statements while it is read, only the statement being
+ * built is held in memory. A ; ends a statement unless it is inside a quoted
+ * string or name, a comment or the body of a CREATE TRIGGER, which ends at the
+ * END that is not closing a CASE expression. Comments are dropped from the
+ * statements that are returned
+ * @author samkirton
+ */
+public final class SchemaScriptReader {
+	private Reader mReader;
+	private char[] mBuffer;
+	private int mPosition;
+	private int mLength;
+	private StringBuffer mStatement;
+	
+	// the words of the statement, used to find the body of a trigger
+	private StringBuffer mWord;
+	private int mWordCount;
+	private String mFirstWord;
+	private String mSecondWord;
+	private String mLastWord;
+	private boolean mTrigger;
+	private int mCaseDepth;
+	
+	private static final int STATE_SQL = 0;
+	private static final int STATE_QUOTE = 1;
+	private static final int STATE_LINE_COMMENT = 2;
+	private static final int STATE_BLOCK_COMMENT = 3;
+	
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+	
+	/**
+	 * @param	inputStream	The script, the caller closes it
+	 */
+	public SchemaScriptReader(InputStream inputStream) {
+		this(new InputStreamReader(inputStream), DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * @param	reader	The script, the caller closes it
+	 * @param	bufferSize	The number of characters read from the script at a time
+	 */
+	public SchemaScriptReader(Reader reader, int bufferSize) {
+		mReader = reader;
+		mBuffer = new char[Math.max(bufferSize, 1)];
+		mStatement = new StringBuffer();
+		mWord = new StringBuffer();
+	}
+	
+	/**
+	 * @return	The next statement without its closing ;, null when the script has
+	 * no more statements. Empty statements are skipped and a statement at the end
+	 * of the script does not need a closing ;
+	 */
+	public String nextStatement() throws IOException {
+		resetStatement();
+		int state = STATE_SQL;
+		char quote = 0;
+		int c;
+		while ((c = read()) != -1) {
+			char ch = (char)c;
+			switch (state) {
+				case STATE_QUOTE:
+					mStatement.append(ch);
+					if (ch == quote) {
+						// a doubled quote is an escaped quote inside the string
+						if (peek() == quote) {
+							mStatement.append((char)read());
+						} else {
+							state = STATE_SQL;
+						}
+					}
+					break;
+				case STATE_LINE_COMMENT:
+					if (ch == '\n') {
+						state = STATE_SQL;
+						appendSpace();
+					}
+					break;
+				case STATE_BLOCK_COMMENT:
+					if (ch == '*' && peek() == '/') {
+						read();
+						state = STATE_SQL;
+						appendSpace();
+					}
+					break;
+				default:
+					if (isWordCharacter(ch)) {
+						mWord.append(ch);
+						mStatement.append(ch);
+						break;
+					}
+					
+					endWord();
+					if (ch == '-' && peek() == '-') {
+						read();
+						state = STATE_LINE_COMMENT;
+					} else if (ch == '/' && peek() == '*') {
+						read();
+						state = STATE_BLOCK_COMMENT;
+					} else if (ch == '\'' || ch == '"' || ch == '`' || ch == '[') {
+						quote = ch == '[' ? ']' : ch;
+						state = STATE_QUOTE;
+						mStatement.append(ch);
+					} else if (ch == ';') {
+						if (isStatementComplete()) {
+							if (mStatement.length() > 0) {
+								return trimStatement();
+							}
+							
+							resetStatement();
+						} else {
+							mStatement.append(ch);
+						}
+					} else if (ch <= ' ') {
+						appendSpace();
+					} else {
+						mStatement.append(ch);
+					}
+					break;
+			}
+		}
+		
+		endWord();
+		return mStatement.length() > 0 ? trimStatement() : null;
+	}
+	
+	/**
+	 * @return	Does a ; outside of quotes and comments end the statement?
+	 */
+	private boolean isStatementComplete() {
+		return !mTrigger || ("END".equalsIgnoreCase(mLastWord) && mCaseDepth == 0);
+	}
+	
+	/**
+	 * Track the words of the statement, a trigger is found from its first words and
+	 * the CASE expressions inside its body are counted so their END is not taken
+	 * for the END of the trigger
+	 */
+	private void endWord() {
+		if (mWord.length() == 0) {
+			return;
+		}
+		
+		String word = mWord.toString();
+		mWord.setLength(0);
+		mWordCount++;
+		
+		if (mWordCount == 1) {
+			mFirstWord = word;
+		} else if (mWordCount == 2) {
+			mSecondWord = word;
+			mTrigger = "CREATE".equalsIgnoreCase(mFirstWord) && "TRIGGER".equalsIgnoreCase(word);
+		} else if (mWordCount == 3 && !mTrigger) {
+			mTrigger = "CREATE".equalsIgnoreCase(mFirstWord) && "TRIGGER".equalsIgnoreCase(word) &&
+					("TEMP".equalsIgnoreCase(mSecondWord) || "TEMPORARY".equalsIgnoreCase(mSecondWord));
+		}
+		
+		if (mTrigger) {
+			if ("CASE".equalsIgnoreCase(word)) {
+				mCaseDepth++;
+			} else if ("END".equalsIgnoreCase(word) && mCaseDepth > 0) {
+				mCaseDepth--;
+				// the END of a CASE never ends the trigger
+				word = null;
+			}
+		}
+		
+		mLastWord = word;
+	}
+	
+	private void resetStatement() {
+		mStatement.setLength(0);
+		mWord.setLength(0);
+		mWordCount = 0;
+		mFirstWord = null;
+		mSecondWord = null;
+		mLastWord = null;
+		mTrigger = false;
+		mCaseDepth = 0;
+	}
+	
+	/**
+	 * Whitespace and comments are written as a single space, nothing is written
+	 * before the first character of a statement
+	 */
+	private void appendSpace() {
+		int length = mStatement.length();
+		if (length > 0 && mStatement.charAt(length - 1) != ' ') {
+			mStatement.append(' ');
+		}
+	}
+	
+	private String trimStatement() {
+		int length = mStatement.length();
+		if (mStatement.charAt(length - 1) == ' ') {
+			mStatement.setLength(length - 1);
+		}
+		
+		return mStatement.toString();
+	}
+	
+	private static boolean isWordCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c > 127;
+	}
+	
+	/**
+	 * @return	The next character of the script or -1 at the end of it
+	 */
+	private int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		
+		return mBuffer[mPosition++];
+	}
+	
+	/**
+	 * @return	The next character of the script without reading it, -1 at the end of it
+	 */
+	private int peek() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		
+		return mBuffer[mPosition];
+	}
+	
+	/**
+	 * Read the next chunk of the script when the buffer has been used
+	 * @return	Is there a character to read?
+	 */
+	private boolean fill() throws IOException {
+		while (mPosition == mLength) {
+			mLength = mReader.read(mBuffer, 0, mBuffer.length);
+			mPosition = 0;
+			if (mLength == -1) {
+				mLength = 0;
+				return false;
+			}
+		}
+		
+		return true;
+	}
+}
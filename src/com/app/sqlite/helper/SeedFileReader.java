@@ -0,0 +1,214 @@
+package com.app.sqlite.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Statement;
+
+/**
+ * Reads a seed file written by SeedFileWriter and binds its rows to a prepared
+ * INSERT statement. The file is read through one fixed size buffer and numbers 
+ * are bound straight from it, only the text and blob values are allocated so the
+ * memory used does not depend on the size of the file.
+ * 
+ * The file starts with the magic bytes SQSD, a version byte and the column names,
+ * each row is then one value per column: a type byte followed by 8 bytes for a
+ * long or a double, or a 4 byte length and the bytes of a UTF-8 text or a blob. 
+ * The numbers are big-endian and the file ends after the last row
+ * @author samkirton
+ */
+public final class SeedFileReader {
+	private InputStream mInputStream;
+	private byte[] mBuffer;
+	private int mPosition;
+	private int mLength;
+	private byte[] mText;
+	private String[] mColumns;
+	
+	static final byte[] MAGIC = { 'S', 'Q', 'S', 'D' };
+	static final int VERSION = 1;
+	
+	public static final int VALUE_NULL = 0;
+	public static final int VALUE_LONG = 1;
+	public static final int VALUE_DOUBLE = 2;
+	public static final int VALUE_TEXT = 3;
+	public static final int VALUE_BLOB = 4;
+	
+	public static final int DEFAULT_BUFFER_SIZE = 4096;
+	
+	/**
+	 * @param	inputStream	The seed file, the caller closes it
+	 */
+	public SeedFileReader(InputStream inputStream) {
+		this(inputStream, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * @param	inputStream	The seed file, the caller closes it
+	 * @param	bufferSize	The number of bytes read from the file at a time
+	 */
+	public SeedFileReader(InputStream inputStream, int bufferSize) {
+		mInputStream = inputStream;
+		mBuffer = new byte[Math.max(bufferSize, 8)];
+		mText = new byte[64];
+	}
+	
+	/**
+	 * @return	The column names of the file in the order of the values of each row
+	 * @throws	IOException	The file is not a seed file or could not be read
+	 */
+	public String[] getColumns() throws IOException {
+		if (!(mColumns instanceof String[])) {
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (readByte() != MAGIC[i]) {
+					throw new IOException("Not a seed file");
+				}
+			}
+			
+			int version = readByte();
+			if (version != VERSION) {
+				throw new IOException("Unsupported seed file version: " + version);
+			}
+			
+			mColumns = new String[readInt()];
+			for (int i = 0; i < mColumns.length; i++) {
+				mColumns[i] = readText(readInt());
+			}
+		}
+		
+		return mColumns;
+	}
+	
+	/**
+	 * Bind the values of the next row to the placeholders of a statement, the first
+	 * column is bound to placeholder 1
+	 * @param	statement	The prepared statement
+	 * @return	Was a row bound? False at the end of the file
+	 * @throws	IOException	The file could not be read or ends inside a row
+	 */
+	public boolean bindRow(Statement statement) throws IOException, DatabaseException {
+		int columnCount = getColumns().length;
+		if (!fill()) {
+			return false;
+		}
+		
+		for (int i = 1; i <= columnCount; i++) {
+			int type = readByte();
+			switch (type) {
+				case VALUE_NULL:
+					statement.bindNull(i);
+					break;
+				case VALUE_LONG:
+					statement.bind(i, readLong());
+					break;
+				case VALUE_DOUBLE:
+					statement.bind(i, Double.longBitsToDouble(readLong()));
+					break;
+				case VALUE_TEXT:
+					statement.bind(i, readText(readInt()));
+					break;
+				case VALUE_BLOB:
+					byte[] blob = new byte[readInt()];
+					readFully(blob, blob.length);
+					statement.bind(i, blob);
+					break;
+				default:
+					throw new IOException("Unknown seed value type: " + type);
+			}
+		}
+		
+		return true;
+	}
+	
+	private String readText(int length) throws IOException {
+		if (length > mText.length) {
+			mText = new byte[Math.max(length, mText.length * 2)];
+		}
+		
+		readFully(mText, length);
+		return new String(mText, 0, length, "UTF-8");
+	}
+	
+	private long readLong() throws IOException {
+		require(8);
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (mBuffer[mPosition++] & 0xFF);
+		}
+		
+		return value;
+	}
+	
+	private int readInt() throws IOException {
+		require(4);
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			value = (value << 8) | (mBuffer[mPosition++] & 0xFF);
+		}
+		
+		if (value < 0) {
+			throw new IOException("Invalid seed value length");
+		}
+		
+		return value;
+	}
+	
+	private int readByte() throws IOException {
+		require(1);
+		return mBuffer[mPosition++];
+	}
+	
+	/**
+	 * Copy bytes out of the buffer, refilling it as often as needed
+	 */
+	private void readFully(byte[] bytes, int length) throws IOException {
+		int copied = 0;
+		while (copied < length) {
+			require(1);
+			int count = Math.min(length - copied, mLength - mPosition);
+			System.arraycopy(mBuffer, mPosition, bytes, copied, count);
+			mPosition += count;
+			copied += count;
+		}
+	}
+	
+	/**
+	 * Make sure the buffer holds at least count bytes that have not been read, the
+	 * bytes left in the buffer are moved to its start before it is refilled
+	 * @throws	IOException	The file ends first
+	 */
+	private void require(int count) throws IOException {
+		if (mLength - mPosition >= count) {
+			return;
+		}
+		
+		int remaining = mLength - mPosition;
+		System.arraycopy(mBuffer, mPosition, mBuffer, 0, remaining);
+		mPosition = 0;
+		mLength = remaining;
+		while (mLength < count) {
+			int read = mInputStream.read(mBuffer, mLength, mBuffer.length - mLength);
+			if (read == -1) {
+				throw new IOException("Unexpected end of the seed file");
+			}
+			mLength += read;
+		}
+	}
+	
+	/**
+	 * @return	Is there anything left to read?
+	 */
+	private boolean fill() throws IOException {
+		while (mPosition == mLength) {
+			mLength = mInputStream.read(mBuffer, 0, mBuffer.length);
+			mPosition = 0;
+			if (mLength == -1) {
+				mLength = 0;
+				return false;
+			}
+		}
+		
+		return true;
+	}
+}
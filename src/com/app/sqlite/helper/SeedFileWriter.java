@@ -0,0 +1,111 @@
+package com.app.sqlite.helper;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the seed files read by SeedFileReader, usually at build time from the
+ * reference data that is shipped as a resource. Each row is written as one 
+ * value per column followed by endRow()
+ * @author samkirton
+ */
+public final class SeedFileWriter {
+	private DataOutputStream mOutputStream;
+	private int mColumnCount;
+	private int mValueCount;
+	
+	/**
+	 * Write the header of the file
+	 * @param	outputStream	The seed file, closed by close()
+	 * @param	columns	The column names the values of each row are inserted into
+	 */
+	public SeedFileWriter(OutputStream outputStream, String[] columns) throws IOException {
+		mOutputStream = new DataOutputStream(outputStream);
+		mColumnCount = columns.length;
+		mOutputStream.write(SeedFileReader.MAGIC);
+		mOutputStream.writeByte(SeedFileReader.VERSION);
+		mOutputStream.writeInt(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			writeBytes(columns[i].getBytes("UTF-8"));
+		}
+	}
+	
+	public void writeNull() throws IOException {
+		startValue(SeedFileReader.VALUE_NULL);
+	}
+	
+	public void write(long value) throws IOException {
+		startValue(SeedFileReader.VALUE_LONG);
+		mOutputStream.writeLong(value);
+	}
+	
+	public void write(double value) throws IOException {
+		startValue(SeedFileReader.VALUE_DOUBLE);
+		mOutputStream.writeLong(Double.doubleToLongBits(value));
+	}
+	
+	/**
+	 * @param	value	The text or null
+	 */
+	public void write(String value) throws IOException {
+		if (!(value instanceof String)) {
+			writeNull();
+			return;
+		}
+		
+		startValue(SeedFileReader.VALUE_TEXT);
+		writeBytes(value.getBytes("UTF-8"));
+	}
+	
+	/**
+	 * @param	value	The blob or null
+	 */
+	public void write(byte[] value) throws IOException {
+		if (!(value instanceof byte[])) {
+			writeNull();
+			return;
+		}
+		
+		startValue(SeedFileReader.VALUE_BLOB);
+		writeBytes(value);
+	}
+	
+	/**
+	 * End the current row
+	 * @throws	IllegalStateException	The row does not have a value for every column
+	 */
+	public void endRow() {
+		if (mValueCount != mColumnCount) {
+			throw new IllegalStateException("A row needs " + mColumnCount + " values, it has " + mValueCount);
+		}
+		
+		mValueCount = 0;
+	}
+	
+	/**
+	 * Flush and close the file
+	 * @throws	IllegalStateException	The last row was not ended
+	 */
+	public void close() throws IOException {
+		if (mValueCount != 0) {
+			throw new IllegalStateException("The last row was not ended");
+		}
+		
+		mOutputStream.close();
+	}
+	
+	private void startValue(int type) throws IOException {
+		if (mValueCount == mColumnCount) {
+			throw new IllegalStateException("The row already has a value for every column");
+		}
+		
+		mValueCount++;
+		mOutputStream.writeByte(type);
+	}
+	
+	private void writeBytes(byte[] bytes) throws IOException {
+		mOutputStream.writeInt(bytes.length);
+		mOutputStream.write(bytes);
+	}
+}
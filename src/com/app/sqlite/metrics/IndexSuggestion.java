@@ -0,0 +1,92 @@
+package com.app.sqlite.metrics;
+
+/**
+ * An index that would let SQLite search or read in order instead of scanning or
+ * sorting, suggested by a QueryPlanAdvisor. The equality columns of a query come
+ * first, then its range column or else its ORDER BY columns
+ * @author samkirton
+ */
+public final class IndexSuggestion {
+	private String mTableName;
+	private String[] mColumns;
+	private int mQueryCount;
+	private long mTotalElapsed;
+	
+	IndexSuggestion(String tableName, String[] columns) {
+		mTableName = tableName;
+		mColumns = columns;
+	}
+	
+	public String getTableName() {
+		return mTableName;
+	}
+	
+	/**
+	 * @return	The columns of the index in order
+	 */
+	public String[] getColumns() {
+		return mColumns;
+	}
+	
+	/**
+	 * @return	The number of executions of the queries the index would help
+	 */
+	public int getQueryCount() {
+		return mQueryCount;
+	}
+	
+	/**
+	 * @return	The time spent in the queries the index would help in milliseconds
+	 */
+	public long getTotalElapsed() {
+		return mTotalElapsed;
+	}
+	
+	/**
+	 * @return	The name of the index, idx_ followed by the table and column names
+	 */
+	public String getIndexName() {
+		StringBuffer stringBuffer = new StringBuffer("idx_");
+		stringBuffer.append(mTableName);
+		for (int i = 0; i < mColumns.length; i++) {
+			stringBuffer.append('_');
+			stringBuffer.append(mColumns[i]);
+		}
+		
+		return stringBuffer.toString();
+	}
+	
+	/**
+	 * @return	A CREATE INDEX IF NOT EXISTS statement for the index
+	 */
+	public String getCreateStatement() {
+		StringBuffer stringBuffer = new StringBuffer("CREATE INDEX IF NOT EXISTS ");
+		stringBuffer.append(getIndexName());
+		stringBuffer.append(" ON ");
+		stringBuffer.append(mTableName);
+		stringBuffer.append(" (");
+		for (int i = 0; i < mColumns.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(mColumns[i]);
+		}
+		stringBuffer.append(")");
+		
+		return stringBuffer.toString();
+	}
+	
+	void add(QueryProfile profile) {
+		mQueryCount += profile.getCount();
+		mTotalElapsed += profile.getTotalElapsed();
+	}
+	
+	void add(IndexSuggestion suggestion) {
+		mQueryCount += suggestion.mQueryCount;
+		mTotalElapsed += suggestion.mTotalElapsed;
+	}
+	
+	public String toString() {
+		return mQueryCount + "x " + mTotalElapsed + "ms " + getCreateStatement();
+	}
+}
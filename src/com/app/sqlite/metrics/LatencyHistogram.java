@@ -0,0 +1,113 @@
+package com.app.sqlite.metrics;
+
+/**
+ * Counts timings in fixed millisecond buckets, recording a timing does not allocate
+ * @author samkirton
+ */
+public final class LatencyHistogram {
+	private long[] mCounts;
+	private long mCount;
+	private long mTotal;
+	private long mMax;
+	
+	/**
+	 * The inclusive upper bound of each bucket in milliseconds, the last bucket
+	 * holds every timing above the last bound
+	 */
+	private static final long[] BUCKET_BOUNDS = {
+		0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000
+	};
+	
+	public LatencyHistogram() {
+		mCounts = new long[BUCKET_BOUNDS.length + 1];
+	}
+	
+	/**
+	 * @param	elapsed	The timing in milliseconds
+	 */
+	public synchronized void record(long elapsed) {
+		int bucket = 0;
+		while (bucket < BUCKET_BOUNDS.length && elapsed > BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+		
+		mCounts[bucket]++;
+		mCount++;
+		mTotal += elapsed;
+		if (elapsed > mMax) {
+			mMax = elapsed;
+		}
+	}
+	
+	public synchronized long getCount() {
+		return mCount;
+	}
+	
+	/**
+	 * @return	The sum of every timing in milliseconds
+	 */
+	public synchronized long getTotal() {
+		return mTotal;
+	}
+	
+	public synchronized long getMax() {
+		return mMax;
+	}
+	
+	/**
+	 * @return	The mean timing in milliseconds, 0 when nothing was recorded
+	 */
+	public synchronized long getMean() {
+		return mCount == 0 ? 0 : mTotal / mCount;
+	}
+	
+	/**
+	 * @return	The number of buckets, the last bucket has no upper bound
+	 */
+	public int getBucketCount() {
+		return mCounts.length;
+	}
+	
+	/**
+	 * @return	The inclusive upper bound of the bucket or -1 for the last bucket
+	 */
+	public long getBucketBound(int bucket) {
+		return bucket < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[bucket] : -1;
+	}
+	
+	public synchronized long getCountInBucket(int bucket) {
+		return mCounts[bucket];
+	}
+	
+	/**
+	 * @param	percentile	The percentile from 1 to 100
+	 * @return	The upper bound of the bucket that holds the percentile, the maximum
+	 * timing when it falls in the last bucket and 0 when nothing was recorded
+	 */
+	public synchronized long getPercentile(int percentile) {
+		if (mCount == 0) {
+			return 0;
+		}
+		
+		long target = (mCount * percentile + 99) / 100;
+		long seen = 0;
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			seen += mCounts[i];
+			if (seen >= target) {
+				return Math.min(BUCKET_BOUNDS[i], mMax);
+			}
+		}
+		
+		return mMax;
+	}
+	
+	public synchronized void reset() {
+		for (int i = 0; i < mCounts.length; i++) {
+			mCounts[i] = 0;
+		}
+		
+		mCount = 0;
+		mTotal = 0;
+		mMax = 0;
+	}
+}
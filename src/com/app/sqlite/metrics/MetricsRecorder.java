@@ -0,0 +1,157 @@
+package com.app.sqlite.metrics;
+
+/**
+ * A ProviderListener that keeps a latency histogram per phase and per operation,
+ * statement, failure and row counts per operation, and a log of the most recent
+ * statements that took longer than a threshold
+ * @author samkirton
+ */
+public final class MetricsRecorder implements ProviderListener {
+	private LatencyHistogram[] mPhases;
+	private LatencyHistogram[] mOperations;
+	private long[] mFailures;
+	private long[] mRows;
+	private long mSlowQueryThreshold;
+	private SlowQuery[] mSlowQueries;
+	private int mSlowQueryNext;
+	private int mSlowQueryCount;
+	private boolean mPrintSlowQueries;
+	
+	public static final int DEFAULT_SLOW_QUERY_LOG_SIZE = 32;
+	
+	/**
+	 * @param	slowQueryThreshold	Statements that take longer than this many milliseconds
+	 * are added to the slow query log, -1 disables the log
+	 */
+	public MetricsRecorder(long slowQueryThreshold) {
+		this(slowQueryThreshold, DEFAULT_SLOW_QUERY_LOG_SIZE);
+	}
+	
+	/**
+	 * @param	slowQueryThreshold	Statements that take longer than this many milliseconds
+	 * are added to the slow query log, -1 disables the log
+	 * @param	slowQueryLogSize	The number of slow statements to keep, older ones are dropped
+	 */
+	public MetricsRecorder(long slowQueryThreshold, int slowQueryLogSize) {
+		mPhases = new LatencyHistogram[PHASE_COUNT];
+		for (int i = 0; i < mPhases.length; i++) {
+			mPhases[i] = new LatencyHistogram();
+		}
+		
+		mOperations = new LatencyHistogram[OPERATION_COUNT];
+		for (int i = 0; i < mOperations.length; i++) {
+			mOperations[i] = new LatencyHistogram();
+		}
+		
+		mFailures = new long[OPERATION_COUNT];
+		mRows = new long[OPERATION_COUNT];
+		mSlowQueryThreshold = slowQueryThreshold;
+		mSlowQueries = new SlowQuery[Math.max(slowQueryLogSize, 1)];
+	}
+	
+	/**
+	 * @param	printSlowQueries	Print each slow statement with System.out as well as logging it
+	 */
+	public void setPrintSlowQueries(boolean printSlowQueries) {
+		mPrintSlowQueries = printSlowQueries;
+	}
+	
+	public void onPhase(int phase, String sql, long elapsed) {
+		mPhases[phase].record(elapsed);
+	}
+	
+	public void onStatement(int operation, String tableName, String sql, int rows, long elapsed, boolean successful) {
+		mOperations[operation].record(elapsed);
+		synchronized (this) {
+			if (!successful) {
+				mFailures[operation]++;
+			}
+			
+			if (rows > 0) {
+				mRows[operation] += rows;
+			}
+		}
+		
+		// the fingerprint is only built for the statements that are logged
+		if (mSlowQueryThreshold >= 0 && elapsed > mSlowQueryThreshold) {
+			SlowQuery slowQuery = new SlowQuery(operation, tableName, SqlFingerprint.of(sql), rows,
+					elapsed, System.currentTimeMillis(), successful);
+			synchronized (this) {
+				mSlowQueries[mSlowQueryNext] = slowQuery;
+				mSlowQueryNext = (mSlowQueryNext + 1) % mSlowQueries.length;
+				mSlowQueryCount = Math.min(mSlowQueryCount + 1, mSlowQueries.length);
+			}
+			
+			if (mPrintSlowQueries) {
+				System.out.println("Slow query: " + slowQuery.toString());
+			}
+		}
+	}
+	
+	/**
+	 * @param	phase	One of the PHASE_ constants
+	 * @return	The timings of the phase
+	 */
+	public LatencyHistogram getPhaseHistogram(int phase) {
+		return mPhases[phase];
+	}
+	
+	/**
+	 * @param	operation	One of the OPERATION_ constants
+	 * @return	The timings of the statements of the operation
+	 */
+	public LatencyHistogram getOperationHistogram(int operation) {
+		return mOperations[operation];
+	}
+	
+	/**
+	 * @param	operation	One of the OPERATION_ constants
+	 * @return	The number of statements of the operation
+	 */
+	public long getStatementCount(int operation) {
+		return mOperations[operation].getCount();
+	}
+	
+	public synchronized long getFailureCount(int operation) {
+		return mFailures[operation];
+	}
+	
+	/**
+	 * @return	The number of rows the statements of the operation reported
+	 */
+	public synchronized long getRowCount(int operation) {
+		return mRows[operation];
+	}
+	
+	/**
+	 * @return	The logged slow statements, the oldest first
+	 */
+	public synchronized SlowQuery[] getSlowQueries() {
+		SlowQuery[] slowQueries = new SlowQuery[mSlowQueryCount];
+		int first = (mSlowQueryNext - mSlowQueryCount + mSlowQueries.length) % mSlowQueries.length;
+		for (int i = 0; i < slowQueries.length; i++) {
+			slowQueries[i] = mSlowQueries[(first + i) % mSlowQueries.length];
+		}
+		
+		return slowQueries;
+	}
+	
+	public synchronized void reset() {
+		for (int i = 0; i < mPhases.length; i++) {
+			mPhases[i].reset();
+		}
+		
+		for (int i = 0; i < mOperations.length; i++) {
+			mOperations[i].reset();
+			mFailures[i] = 0;
+			mRows[i] = 0;
+		}
+		
+		for (int i = 0; i < mSlowQueries.length; i++) {
+			mSlowQueries[i] = null;
+		}
+		
+		mSlowQueryNext = 0;
+		mSlowQueryCount = 0;
+	}
+}
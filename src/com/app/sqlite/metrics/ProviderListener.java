@@ -0,0 +1,45 @@
+package com.app.sqlite.metrics;
+
+/**
+ * Receives the timings of the work done by a SQLProvider. A listener is called on
+ * the thread that made the provider call so it must return quickly, times are in
+ * milliseconds because that is the resolution of the device clock
+ * @author samkirton
+ */
+public interface ProviderListener {
+	public static final int PHASE_OPEN = 0;
+	public static final int PHASE_PREPARE = 1;
+	public static final int PHASE_BIND = 2;
+	public static final int PHASE_EXECUTE = 3;
+	public static final int PHASE_FETCH = 4;
+	public static final int PHASE_COMMIT = 5;
+	public static final int PHASE_CLOSE = 6;
+	public static final int PHASE_COUNT = 7;
+	
+	public static final int OPERATION_SELECT = 0;
+	public static final int OPERATION_INSERT = 1;
+	public static final int OPERATION_UPDATE = 2;
+	public static final int OPERATION_DELETE = 3;
+	public static final int OPERATION_SCHEMA = 4;
+	public static final int OPERATION_OTHER = 5;
+	public static final int OPERATION_COUNT = 6;
+	
+	/**
+	 * A phase of a call has finished
+	 * @param	phase	One of the PHASE_ constants
+	 * @param	sql	The SQL text of the statement or null for the open, close and commit phases
+	 * @param	elapsed	The time the phase took in milliseconds
+	 */
+	public void onPhase(int phase, String sql, long elapsed);
+	
+	/**
+	 * A statement has finished, a SELECT finishes when its cursor is closed
+	 * @param	operation	One of the OPERATION_ constants
+	 * @param	tableName	The lower case table the statement reads or writes or null if it is not known
+	 * @param	sql	The SQL text of the statement, SqlFingerprint.of() normalises it
+	 * @param	rows	The rows read by a SELECT, 1 for an insert of a model or -1 if it is not known
+	 * @param	elapsed	The time spent preparing, binding, executing and fetching in milliseconds
+	 * @param	successful	Did the statement succeed?
+	 */
+	public void onStatement(int operation, String tableName, String sql, int rows, long elapsed, boolean successful);
+}
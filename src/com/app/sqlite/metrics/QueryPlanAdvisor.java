@@ -0,0 +1,323 @@
+package com.app.sqlite.metrics;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * A ProviderListener that counts and times the SELECT, UPDATE and DELETE queries 
+ * of a provider by fingerprint, to find the queries that need an index. The plans 
+ * are not read while the queries run, SQLProvider.adviseIndexes() runs EXPLAIN 
+ * QUERY PLAN once for each new fingerprint and ranks the indexes that would 
+ * remove full table scans and temporary sorts by the time spent in the queries 
+ * they would help. Another listener, such as a MetricsRecorder, can receive the
+ * same calls through the advisor
+ * @author samkirton
+ */
+public final class QueryPlanAdvisor implements ProviderListener {
+	private ProviderListener mDelegate;
+	private int mMaxQueries;
+	private Hashtable mProfiles;
+	private Vector mProfileOrder;
+	
+	public static final int DEFAULT_MAX_QUERIES = 256;
+	
+	public QueryPlanAdvisor() {
+		this(null, DEFAULT_MAX_QUERIES);
+	}
+	
+	/**
+	 * @param	delegate	The listener that also receives every call or null
+	 * @param	maxQueries	The number of fingerprints to record, later ones are not recorded
+	 */
+	public QueryPlanAdvisor(ProviderListener delegate, int maxQueries) {
+		mDelegate = delegate;
+		mMaxQueries = maxQueries;
+		mProfiles = new Hashtable();
+		mProfileOrder = new Vector();
+	}
+	
+	public void onPhase(int phase, String sql, long elapsed) {
+		if (mDelegate instanceof ProviderListener) {
+			mDelegate.onPhase(phase, sql, elapsed);
+		}
+	}
+	
+	public void onStatement(int operation, String tableName, String sql, int rows, long elapsed, boolean successful) {
+		if (mDelegate instanceof ProviderListener) {
+			mDelegate.onStatement(operation, tableName, sql, rows, elapsed, successful);
+		}
+		
+		if (!successful || !(tableName instanceof String) || (operation != OPERATION_SELECT && 
+				operation != OPERATION_UPDATE && operation != OPERATION_DELETE)) {
+			return;
+		}
+		
+		String fingerprint = SqlFingerprint.of(sql);
+		synchronized (this) {
+			QueryProfile profile = (QueryProfile)mProfiles.get(fingerprint);
+			if (!(profile instanceof QueryProfile)) {
+				if (mProfileOrder.size() >= mMaxQueries) {
+					return;
+				}
+				
+				profile = new QueryProfile(fingerprint, tableName);
+				mProfiles.put(fingerprint, profile);
+				mProfileOrder.addElement(profile);
+			}
+			
+			profile.record(elapsed);
+		}
+	}
+	
+	/**
+	 * @return	The recorded queries, the most total time first
+	 */
+	public synchronized QueryProfile[] getQueries() {
+		QueryProfile[] profiles = new QueryProfile[mProfileOrder.size()];
+		mProfileOrder.copyInto(profiles);
+		
+		// insertion sort, the list is short and mostly sorted between calls
+		for (int i = 1; i < profiles.length; i++) {
+			QueryProfile profile = profiles[i];
+			int j = i - 1;
+			while (j >= 0 && profiles[j].getTotalElapsed() < profile.getTotalElapsed()) {
+				profiles[j + 1] = profiles[j];
+				j--;
+			}
+			profiles[j + 1] = profile;
+		}
+		
+		return profiles;
+	}
+	
+	/**
+	 * @return	The fingerprints that have not been explained yet
+	 */
+	public synchronized String[] getUnexplainedQueries() {
+		Vector fingerprints = new Vector();
+		for (int i = 0; i < mProfileOrder.size(); i++) {
+			QueryProfile profile = (QueryProfile)mProfileOrder.elementAt(i);
+			if (!(profile.getPlan() instanceof String[])) {
+				fingerprints.addElement(profile.getFingerprint());
+			}
+		}
+		
+		String[] unexplained = new String[fingerprints.size()];
+		fingerprints.copyInto(unexplained);
+		return unexplained;
+	}
+	
+	/**
+	 * @param	fingerprint	A fingerprint from getUnexplainedQueries()
+	 * @param	plan	The detail lines of EXPLAIN QUERY PLAN for the fingerprint
+	 */
+	public synchronized void setPlan(String fingerprint, String[] plan) {
+		QueryProfile profile = (QueryProfile)mProfiles.get(fingerprint);
+		if (profile instanceof QueryProfile) {
+			profile.setPlan(plan);
+		}
+	}
+	
+	/**
+	 * @return	An index for each table and column list that would remove a full scan
+	 * or a temporary sort of an explained query, the most total query time first. The
+	 * queries of an index with the same columns are counted together, and an index
+	 * whose columns start another suggested index of the table is left out because
+	 * the longer index serves its queries too
+	 */
+	public IndexSuggestion[] getSuggestions() {
+		QueryProfile[] profiles = getQueries();
+		Hashtable suggestions = new Hashtable();
+		Vector order = new Vector();
+		for (int i = 0; i < profiles.length; i++) {
+			if (!profiles[i].isFullScan() && !profiles[i].isTempSort()) {
+				continue;
+			}
+			
+			String[] columns = getIndexColumns(profiles[i].getFingerprint(), profiles[i].isFullScan());
+			if (columns.length == 0) {
+				continue;
+			}
+			
+			IndexSuggestion suggestion = new IndexSuggestion(profiles[i].getTableName(), columns);
+			String statement = suggestion.getCreateStatement();
+			if (suggestions.get(statement) instanceof IndexSuggestion) {
+				suggestion = (IndexSuggestion)suggestions.get(statement);
+			} else {
+				suggestions.put(statement, suggestion);
+				order.addElement(suggestion);
+			}
+			
+			suggestion.add(profiles[i]);
+		}
+		
+		for (int i = order.size() - 1; i >= 0; i--) {
+			IndexSuggestion suggestion = (IndexSuggestion)order.elementAt(i);
+			for (int j = 0; j < order.size(); j++) {
+				IndexSuggestion longer = (IndexSuggestion)order.elementAt(j);
+				if (longer != suggestion && isPrefix(suggestion, longer)) {
+					longer.add(suggestion);
+					order.removeElementAt(i);
+					break;
+				}
+			}
+		}
+		
+		IndexSuggestion[] ranked = new IndexSuggestion[order.size()];
+		order.copyInto(ranked);
+		for (int i = 1; i < ranked.length; i++) {
+			IndexSuggestion suggestion = ranked[i];
+			int j = i - 1;
+			while (j >= 0 && ranked[j].getTotalElapsed() < suggestion.getTotalElapsed()) {
+				ranked[j + 1] = ranked[j];
+				j--;
+			}
+			ranked[j + 1] = suggestion;
+		}
+		
+		return ranked;
+	}
+	
+	public synchronized void reset() {
+		mProfiles.clear();
+		mProfileOrder.removeAllElements();
+	}
+	
+	/**
+	 * Choose the columns of an index for a query: the columns compared with = or IN,
+	 * then for a query that scans the table its first range column. Without a range
+	 * column the ORDER BY columns follow, so the rows are read in order. A WHERE 
+	 * clause with OR or a sub query is not indexed
+	 * @param	fingerprint	The query
+	 * @param	fullScan	Does the query scan the table?
+	 * @return	The columns, empty when no index would help
+	 */
+	static String[] getIndexColumns(String fingerprint, boolean fullScan) {
+		int where = SqlFingerprint.indexOfKeyword(fingerprint, "WHERE");
+		int orderBy = SqlFingerprint.indexOfKeyword(fingerprint, "ORDER");
+		int end = fingerprint.length();
+		String[] endKeywords = { "GROUP", "ORDER", "LIMIT" };
+		for (int i = 0; i < endKeywords.length; i++) {
+			int keyword = SqlFingerprint.indexOfKeyword(fingerprint, endKeywords[i]);
+			if (keyword > where && keyword < end) {
+				end = keyword;
+			}
+		}
+		
+		Vector columns = new Vector();
+		String rangeColumn = null;
+		if (where != -1) {
+			String clause = fingerprint.substring(where + 5, end);
+			if (SqlFingerprint.indexOfKeyword(clause, "OR") != -1 || clause.indexOf('(') != -1 && 
+					SqlFingerprint.indexOfKeyword(clause, "IN") == -1) {
+				return new String[0];
+			}
+			
+			int start = 0;
+			while (start < clause.length()) {
+				int and = SqlFingerprint.indexOfKeyword(clause.substring(start), "AND");
+				String term = and == -1 ? clause.substring(start) : clause.substring(start, start + and);
+				start = and == -1 ? clause.length() : start + and + 3;
+				
+				// the BETWEEN ... AND of a range is a single term
+				if (SqlFingerprint.indexOfKeyword(term, "BETWEEN") != -1 && and != -1) {
+					int next = SqlFingerprint.indexOfKeyword(clause.substring(start), "AND");
+					start = next == -1 ? clause.length() : start + next + 3;
+				}
+				
+				String column = readColumn(term);
+				if (!(column instanceof String)) {
+					continue;
+				}
+				
+				String operator = term.substring(term.indexOf(column) + column.length()).trim().toUpperCase();
+				if (operator.startsWith("=") || operator.startsWith("IN ") || operator.startsWith("IN(") || 
+						(operator.startsWith("IS ") && !operator.startsWith("IS NOT"))) {
+					addColumn(columns, column);
+				} else if (operator.startsWith("<") || operator.startsWith(">") || operator.startsWith("BETWEEN")) {
+					if (!(rangeColumn instanceof String)) {
+						rangeColumn = column;
+					}
+				}
+			}
+		}
+		
+		if (fullScan && rangeColumn instanceof String) {
+			addColumn(columns, rangeColumn);
+		} else if (orderBy != -1) {
+			int by = SqlFingerprint.indexOfKeyword(fingerprint.substring(orderBy), "BY");
+			int limit = SqlFingerprint.indexOfKeyword(fingerprint, "LIMIT");
+			String clause = fingerprint.substring(orderBy + by + 2, limit > orderBy ? limit : fingerprint.length());
+			int start = 0;
+			while (start < clause.length()) {
+				int comma = clause.indexOf(',', start);
+				String term = clause.substring(start, comma == -1 ? clause.length() : comma).trim();
+				start = comma == -1 ? clause.length() : comma + 1;
+				
+				String column = readColumn(term);
+				if (!(column instanceof String) || term.indexOf('(') != -1) {
+					break;
+				}
+				addColumn(columns, column);
+			}
+		}
+		
+		String[] indexColumns = new String[columns.size()];
+		columns.copyInto(indexColumns);
+		return indexColumns;
+	}
+	
+	/**
+	 * @return	The column name at the start of a term without its table, null if the 
+	 * term does not start with a name
+	 */
+	private static String readColumn(String term) {
+		term = term.trim();
+		int end = 0;
+		while (end < term.length() && isNameCharacter(term.charAt(end))) {
+			end++;
+		}
+		
+		if (end == 0 || (term.charAt(0) >= '0' && term.charAt(0) <= '9')) {
+			return null;
+		}
+		
+		String name = term.substring(0, end);
+		int dot = name.lastIndexOf('.');
+		return dot == -1 ? name : name.substring(dot + 1);
+	}
+	
+	/**
+	 * @return	Are the columns of the suggestion the first columns of a longer index
+	 * of the same table?
+	 */
+	private static boolean isPrefix(IndexSuggestion suggestion, IndexSuggestion longer) {
+		String[] columns = suggestion.getColumns();
+		String[] longerColumns = longer.getColumns();
+		if (columns.length >= longerColumns.length || !suggestion.getTableName().equals(longer.getTableName())) {
+			return false;
+		}
+		
+		for (int i = 0; i < columns.length; i++) {
+			if (!columns[i].equalsIgnoreCase(longerColumns[i])) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private static void addColumn(Vector columns, String column) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (((String)columns.elementAt(i)).equalsIgnoreCase(column)) {
+				return;
+			}
+		}
+		
+		columns.addElement(column);
+	}
+	
+	private static boolean isNameCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.';
+	}
+}
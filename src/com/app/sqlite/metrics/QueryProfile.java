@@ -0,0 +1,110 @@
+package com.app.sqlite.metrics;
+
+/**
+ * The executions of one query fingerprint recorded by a QueryPlanAdvisor and the
+ * query plan SQLite chose for it
+ * @author samkirton
+ */
+public final class QueryProfile {
+	private String mFingerprint;
+	private String mTableName;
+	private int mCount;
+	private long mTotalElapsed;
+	private String[] mPlan;
+	private boolean mFullScan;
+	private boolean mTempSort;
+	
+	QueryProfile(String fingerprint, String tableName) {
+		mFingerprint = fingerprint;
+		mTableName = tableName;
+	}
+	
+	/**
+	 * @return	The SQL of the query with its literals replaced by ?
+	 */
+	public String getFingerprint() {
+		return mFingerprint;
+	}
+	
+	/**
+	 * @return	The lower case table of the query or null if it is not known
+	 */
+	public String getTableName() {
+		return mTableName;
+	}
+	
+	/**
+	 * @return	The number of times the query was executed
+	 */
+	public int getCount() {
+		return mCount;
+	}
+	
+	/**
+	 * @return	The time spent in every execution of the query in milliseconds
+	 */
+	public long getTotalElapsed() {
+		return mTotalElapsed;
+	}
+	
+	/**
+	 * @return	The detail lines of EXPLAIN QUERY PLAN or null if the query has not
+	 * been explained
+	 */
+	public String[] getPlan() {
+		return mPlan;
+	}
+	
+	/**
+	 * @return	Does the plan read every row of the table of the query?
+	 */
+	public boolean isFullScan() {
+		return mFullScan;
+	}
+	
+	/**
+	 * @return	Does the plan sort the rows in a temporary b-tree?
+	 */
+	public boolean isTempSort() {
+		return mTempSort;
+	}
+	
+	void record(long elapsed) {
+		mCount++;
+		if (elapsed > 0) {
+			mTotalElapsed += elapsed;
+		}
+	}
+	
+	/**
+	 * Keep the plan and flag the full scans of the table of the query and the 
+	 * temporary sorts. A scan that uses an index is not a full scan
+	 */
+	void setPlan(String[] plan) {
+		mPlan = plan;
+		mFullScan = false;
+		mTempSort = false;
+		for (int i = 0; i < plan.length; i++) {
+			String detail = plan[i];
+			if (detail.regionMatches(true, 0, "SCAN ", 0, 5)) {
+				int start = 5;
+				if (detail.regionMatches(true, start, "TABLE ", 0, 6)) {
+					start += 6;
+				}
+				
+				int end = detail.indexOf(' ', start);
+				String table = detail.substring(start, end == -1 ? detail.length() : end);
+				if (table.equalsIgnoreCase(mTableName) && SqlFingerprint.indexOfKeyword(detail, "USING") == -1) {
+					mFullScan = true;
+				}
+			} else if (detail.toUpperCase().indexOf("USE TEMP B-TREE") != -1) {
+				mTempSort = true;
+			}
+		}
+	}
+	
+	public String toString() {
+		return mCount + "x " + mTotalElapsed + "ms " + (mFullScan ? "SCAN " : "") + (mTempSort ? "SORT " : "") + 
+				mFingerprint;
+	}
+}
@@ -0,0 +1,70 @@
+package com.app.sqlite.metrics;
+
+/**
+ * A statement that took longer than the slow query threshold of a MetricsRecorder
+ * @author samkirton
+ */
+public final class SlowQuery {
+	private int mOperation;
+	private String mTableName;
+	private String mFingerprint;
+	private int mRows;
+	private long mElapsed;
+	private long mTimestamp;
+	private boolean mSuccessful;
+	
+	SlowQuery(int operation, String tableName, String fingerprint, int rows, long elapsed,
+			long timestamp, boolean successful) {
+		mOperation = operation;
+		mTableName = tableName;
+		mFingerprint = fingerprint;
+		mRows = rows;
+		mElapsed = elapsed;
+		mTimestamp = timestamp;
+		mSuccessful = successful;
+	}
+	
+	/**
+	 * @return	One of the ProviderListener OPERATION_ constants
+	 */
+	public int getOperation() {
+		return mOperation;
+	}
+	
+	public String getTableName() {
+		return mTableName;
+	}
+	
+	/**
+	 * @return	The SQL of the statement with its literals replaced by ?
+	 */
+	public String getFingerprint() {
+		return mFingerprint;
+	}
+	
+	public int getRows() {
+		return mRows;
+	}
+	
+	/**
+	 * @return	The time the statement took in milliseconds
+	 */
+	public long getElapsed() {
+		return mElapsed;
+	}
+	
+	/**
+	 * @return	When the statement finished, as System.currentTimeMillis()
+	 */
+	public long getTimestamp() {
+		return mTimestamp;
+	}
+	
+	public boolean isSuccessful() {
+		return mSuccessful;
+	}
+	
+	public String toString() {
+		return mElapsed + "ms " + (mSuccessful ? "" : "(failed) ") + mFingerprint;
+	}
+}
@@ -0,0 +1,156 @@
+package com.app.sqlite.metrics;
+
+import com.app.sqlite.helper.DatabaseHelper;
+
+/**
+ * Describes SQL text for instrumentation, the fingerprint of a query groups the
+ * queries that only differ by their literal values
+ * @author samkirton
+ */
+public final class SqlFingerprint {
+	/**
+	 * Normalise a query, whitespace is collapsed and string and number literals
+	 * are replaced by ?
+	 * @param	sql	The SQL text
+	 * @return	The fingerprint of the query
+	 */
+	public static String of(String sql) {
+		StringBuffer fingerprint = new StringBuffer(sql.length());
+		boolean pendingSpace = false;
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c <= ' ') {
+				pendingSpace = fingerprint.length() > 0;
+				i++;
+				continue;
+			}
+			
+			if (pendingSpace) {
+				fingerprint.append(' ');
+				pendingSpace = false;
+			}
+			
+			if (c == '\'') {
+				// skip the literal, '' is an escaped quote inside it
+				i++;
+				while (i < sql.length()) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+							i++;
+						} else {
+							break;
+						}
+					}
+					i++;
+				}
+				fingerprint.append('?');
+				i++;
+			} else if (isDigit(c) && !isIdentifierEnd(fingerprint)) {
+				while (i < sql.length() && (isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+					i++;
+				}
+				fingerprint.append('?');
+			} else {
+				fingerprint.append(c);
+				i++;
+			}
+		}
+		
+		return fingerprint.toString();
+	}
+	
+	/**
+	 * @param	sql	The SQL text
+	 * @return	The ProviderListener OPERATION_ constant of the first keyword
+	 */
+	public static int getOperation(String sql) {
+		int start = 0;
+		while (start < sql.length() && sql.charAt(start) <= ' ') {
+			start++;
+		}
+		
+		if (sql.regionMatches(true, start, "SELECT", 0, 6)) {
+			return ProviderListener.OPERATION_SELECT;
+		} else if (sql.regionMatches(true, start, "INSERT", 0, 6) || sql.regionMatches(true, start, "REPLACE", 0, 7)) {
+			return ProviderListener.OPERATION_INSERT;
+		} else if (sql.regionMatches(true, start, "UPDATE", 0, 6)) {
+			return ProviderListener.OPERATION_UPDATE;
+		} else if (sql.regionMatches(true, start, "DELETE", 0, 6)) {
+			return ProviderListener.OPERATION_DELETE;
+		} else if (DatabaseHelper.isSchemaQuery(sql)) {
+			return ProviderListener.OPERATION_SCHEMA;
+		}
+		
+		return ProviderListener.OPERATION_OTHER;
+	}
+	
+	/**
+	 * @param	sql	The SQL text
+	 * @return	The lower case table that a write changes or the first table after
+	 * the FROM of a SELECT, null if it cannot be found
+	 */
+	public static String getTableName(String sql) {
+		if (getOperation(sql) != ProviderListener.OPERATION_SELECT) {
+			return DatabaseHelper.getWriteTableName(sql);
+		}
+		
+		int from = indexOfKeyword(sql, "FROM");
+		if (from == -1) {
+			return null;
+		}
+		
+		int start = from + 4;
+		while (start < sql.length() && sql.charAt(start) <= ' ') {
+			start++;
+		}
+		
+		// the table of a sub query is not looked for
+		if (start < sql.length() && sql.charAt(start) == '(') {
+			return null;
+		}
+		
+		int end = start;
+		while (end < sql.length() && sql.charAt(end) > ' ' && sql.charAt(end) != ',' &&
+				sql.charAt(end) != ';' && sql.charAt(end) != ')') {
+			end++;
+		}
+		
+		return end > start ? sql.substring(start, end).toLowerCase() : null;
+	}
+	
+	/**
+	 * @return	The index of the keyword outside of string literals or -1
+	 */
+	static int indexOfKeyword(String sql, String keyword) {
+		boolean inLiteral = false;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '\'') {
+				inLiteral = !inLiteral;
+			} else if (!inLiteral && sql.regionMatches(true, i, keyword, 0, keyword.length()) &&
+					(i == 0 || sql.charAt(i - 1) <= ' ') &&
+					(i + keyword.length() == sql.length() || sql.charAt(i + keyword.length()) <= ' ')) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+	
+	/**
+	 * @return	Does the fingerprint end in a name, so a digit belongs to the name?
+	 */
+	private static boolean isIdentifierEnd(StringBuffer fingerprint) {
+		if (fingerprint.length() == 0) {
+			return false;
+		}
+		
+		char c = fingerprint.charAt(fingerprint.length() - 1);
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || isDigit(c);
+	}
+}
@@ -0,0 +1,92 @@
+package com.app.sqlite.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A stream over a blob that reads one chunk at a time through the provider, 
+ * returned by SQLProvider.openBlob()
+ * @author samkirton
+ */
+final class BlobInputStream extends InputStream {
+	private SQLProvider mProvider;
+	private String mChunkQuery;
+	private long mRowId;
+	private int mLength;
+	private int mChunkSize;
+	private int mOffset;
+	private byte[] mChunk;
+	private int mChunkPosition;
+	private boolean mClosed;
+	
+	BlobInputStream(SQLProvider provider, String chunkQuery, long rowId, int length, int chunkSize) {
+		mProvider = provider;
+		mChunkQuery = chunkQuery;
+		mRowId = rowId;
+		mLength = length;
+		mChunkSize = chunkSize;
+		mChunk = new byte[0];
+	}
+	
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		
+		return mChunk[mChunkPosition++] & 0xFF;
+	}
+	
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		
+		if (!fill()) {
+			return -1;
+		}
+		
+		int count = Math.min(length, mChunk.length - mChunkPosition);
+		System.arraycopy(mChunk, mChunkPosition, bytes, offset, count);
+		mChunkPosition += count;
+		return count;
+	}
+	
+	public int available() {
+		return mChunk.length - mChunkPosition;
+	}
+	
+	public void close() {
+		mClosed = true;
+		mChunk = new byte[0];
+		mChunkPosition = 0;
+	}
+	
+	/**
+	 * Read the next chunk once the current one has been used
+	 * @return	Is there a byte to read?
+	 */
+	private boolean fill() throws IOException {
+		if (mClosed) {
+			throw new IOException("The stream is closed");
+		}
+		
+		if (mChunkPosition < mChunk.length) {
+			return true;
+		}
+		
+		if (mOffset >= mLength) {
+			return false;
+		}
+		
+		mChunk = mProvider.readBlobChunk(mChunkQuery, mRowId, mOffset, Math.min(mChunkSize, mLength - mOffset));
+		mChunkPosition = 0;
+		if (mChunk.length == 0) {
+			// the blob was shortened after the stream was opened
+			mLength = mOffset;
+			return false;
+		}
+		
+		mOffset += mChunk.length;
+		return true;
+	}
+}
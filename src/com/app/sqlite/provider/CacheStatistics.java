@@ -0,0 +1,59 @@
+package com.app.sqlite.provider;
+
+/**
+ * A snapshot of the counters kept by one of the SQLProvider caches
+ * @author samkirton
+ */
+public final class CacheStatistics {
+	private int mHitCount;
+	private int mMissCount;
+	private int mEvictionCount;
+	private int mSize;
+	private int mCapacity;
+	
+	public int getHitCount() {
+		return mHitCount;
+	}
+	
+	public int getMissCount() {
+		return mMissCount;
+	}
+	
+	public int getEvictionCount() {
+		return mEvictionCount;
+	}
+	
+	/**
+	 * @return	The number of entries held by the cache, rows for the result cache
+	 */
+	public int getSize() {
+		return mSize;
+	}
+	
+	/**
+	 * @return	The maximum number of entries the cache can hold, rows for the result cache
+	 */
+	public int getCapacity() {
+		return mCapacity;
+	}
+	
+	/**
+	 * @return	The hits as a percentage of all lookups, 0 when nothing was looked up
+	 */
+	public int getHitPercentage() {
+		int lookups = mHitCount + mMissCount;
+		if (lookups == 0) {
+			return 0;
+		}
+		
+		return (int)((mHitCount * 100L) / lookups);
+	}
+	
+	public CacheStatistics(int hitCount, int missCount, int evictionCount, int size, int capacity) {
+		mHitCount = hitCount;
+		mMissCount = missCount;
+		mEvictionCount = evictionCount;
+		mSize = size;
+		mCapacity = capacity;
+	}
+}
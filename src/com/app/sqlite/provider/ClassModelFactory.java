@@ -0,0 +1,26 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.base.BaseModel;
+import com.app.sqlite.base.ModelFactory;
+
+/**
+ * A ModelFactory for a model class with a public no argument constructor
+ * @author samkirton
+ */
+final class ClassModelFactory implements ModelFactory {
+	private Class mModelClass;
+	
+	ClassModelFactory(Class modelClass) {
+		mModelClass = modelClass;
+	}
+	
+	public BaseModel createModel() {
+		try {
+			return (BaseModel)mModelClass.newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalArgumentException("Cannot create " + mModelClass.getName());
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot create " + mModelClass.getName());
+		}
+	}
+}
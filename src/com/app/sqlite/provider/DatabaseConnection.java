@@ -0,0 +1,780 @@
+package com.app.sqlite.provider;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.Vector;
+
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseBackend;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.DatabaseIOException;
+import com.app.sqlite.backend.Statement;
+import com.app.sqlite.helper.DatabaseHelper;
+import com.app.sqlite.metrics.ProviderListener;
+import com.app.sqlite.metrics.SqlFingerprint;
+
+/**
+ * Owns the database handle used by a SQLProvider. By default a handle is opened
+ * and closed around every call, once the connection is kept open a single handle
+ * is shared between calls until it is closed, fails or has been idle for longer
+ * than the idle timeout. Statements prepared on the shared handle are kept in a
+ * StatementCache for as long as the handle stays open. 
+ * 
+ * Writes are serialized by a writer lock that one thread holds at a time, the
+ * lock is reentrant so a thread that holds it can make further calls. The
+ * transactions of the writer nest, a transaction begun inside another is a 
+ * SAVEPOINT so a Transaction can span many provider calls. While the
+ * connection is kept open reads can use a pool of reader handles, each with its
+ * own statement cache, and the database is switched to write-ahead logging so 
+ * the readers do not block the writer. Without readers a kept open connection 
+ * reads on the writer handle under the writer lock. 
+ * 
+ * The connection also reports timings to the ProviderListener, the timing methods 
+ * do nothing but a null check when no listener is installed
+ * @author samkirton
+ */
+final class DatabaseConnection {
+	private DatabaseBackend mBackend;
+	private String mDatabaseFileRoot;
+	private Database mDatabase;
+	private boolean mKeepOpen;
+	private boolean mInvalid;
+	private int mUseCount;
+	private long mLastUsed;
+	private long mIdleTimeout;
+	private Timer mIdleTimer;
+	private StatementCache mStatementCache;
+	private int mStatementCacheSize;
+	private volatile ProviderListener mListener;
+	
+	// the writer lock and the handle of the thread that holds it
+	private Thread mWriter;
+	private int mWriterHolds;
+	private Database mWriterHandle;
+	private int mTransactionLevel;
+	private Transaction mTransaction;
+	
+	// the reader pool, only used while the connection is kept open
+	private int mReaderCount;
+	private int mOpenReaderCount;
+	private int mReaderGeneration;
+	private Vector mIdleReaders;
+	private Vector mActiveReaders;
+	private boolean mWriteAheadLog;
+	
+	static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+	
+	DatabaseConnection(DatabaseBackend backend, String databaseFileRoot) {
+		mBackend = backend;
+		mDatabaseFileRoot = databaseFileRoot;
+		mStatementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+		mStatementCache = new StatementCache(mStatementCacheSize);
+		mIdleReaders = new Vector();
+		mActiveReaders = new Vector();
+	}
+	
+	/**
+	 * Keep a single handle open between calls
+	 * @return	Was the database opened successfully?
+	 */
+	synchronized boolean open() {
+		mKeepOpen = true;
+		if (!(mDatabase instanceof Database)) {
+			openSharedHandle();
+			mLastUsed = System.currentTimeMillis();
+		}
+		
+		scheduleIdleTimer();
+		return mDatabase instanceof Database;
+	}
+	
+	/**
+	 * Close the shared handle and go back to opening a handle per call, a handle
+	 * that is still in use is closed as soon as it is released
+	 */
+	synchronized void close() {
+		mKeepOpen = false;
+		cancelIdleTimer();
+		if (mUseCount == 0) {
+			closeHandle();
+		}
+		
+		// readers that are in use are closed when they are released
+		closeIdleReaders(0);
+		notifyAll();
+	}
+	
+	/**
+	 * @return	Is the connection keeping a handle open between calls?
+	 */
+	synchronized boolean isOpen() {
+		return mKeepOpen;
+	}
+	
+	/**
+	 * @param	idleTimeout	Close the shared handle after it has not been used for
+	 * this many milliseconds, 0 keeps the handle open until close() is called
+	 */
+	synchronized void setIdleTimeout(long idleTimeout) {
+		mIdleTimeout = idleTimeout;
+		if (mKeepOpen) {
+			scheduleIdleTimer();
+		}
+	}
+	
+	/**
+	 * @param	readerCount	The number of reader handles kept while the connection is
+	 * kept open, 0 reads on the writer handle
+	 */
+	synchronized void setReaderCount(int readerCount) {
+		mReaderCount = Math.max(readerCount, 0);
+		if (mReaderCount > 0 && mDatabase instanceof Database && !(mWriter instanceof Thread) && !mWriteAheadLog) {
+			mWriteAheadLog = enableWriteAheadLog(mDatabase);
+		}
+		
+		closeIdleReaders(0);
+		notifyAll();
+	}
+	
+	synchronized int getReaderCount() {
+		return mReaderCount;
+	}
+	
+	/**
+	 * @return	Did the engine switch the database to write-ahead logging?
+	 */
+	synchronized boolean isWriteAheadLog() {
+		return mWriteAheadLog;
+	}
+	
+	/**
+	 * Get the writer handle for a single provider call, the calling thread holds the
+	 * writer lock until the handle is passed to release() and other writers wait. 
+	 * A thread that already holds the lock gets its handle again, every handle 
+	 * returned must be passed to release()
+	 * @return	A database handle or null if the database could not be opened or the
+	 * thread was interrupted while it waited
+	 */
+	synchronized Database acquire() {
+		Thread thread = Thread.currentThread();
+		if (mWriter == thread) {
+			mWriterHolds++;
+			return mWriterHandle;
+		}
+		
+		while (mWriter instanceof Thread) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				thread.interrupt();
+				return null;
+			}
+		}
+		
+		Database database;
+		if (!mKeepOpen) {
+			database = openHandle();
+		} else {
+			if (!(mDatabase instanceof Database)) {
+				openSharedHandle();
+			}
+			
+			database = mDatabase;
+			if (database instanceof Database) {
+				mUseCount++;
+			}
+		}
+		
+		if (database instanceof Database) {
+			mWriter = thread;
+			mWriterHolds = 1;
+			mWriterHandle = database;
+		}
+		
+		return database;
+	}
+	
+	/**
+	 * Get a handle for a read, every handle returned must be passed to release().
+	 * A thread that holds the writer lock reads on the writer handle so it sees its
+	 * own uncommitted writes. While the connection is kept open with readers the
+	 * read gets a handle of the pool, waiting when every reader is in use, and a
+	 * thread that already holds a reader gets it again
+	 * @return	A database handle or null if the database could not be opened or the
+	 * thread was interrupted while it waited
+	 */
+	synchronized Database acquireReader() {
+		Thread thread = Thread.currentThread();
+		if (mWriter == thread || (mKeepOpen && mReaderCount == 0)) {
+			return acquire();
+		}
+		
+		if (!mKeepOpen) {
+			return openHandle();
+		}
+		
+		Reader reader = findReader(thread);
+		if (reader instanceof Reader) {
+			reader.useCount++;
+			return reader.database;
+		}
+		
+		while (mIdleReaders.isEmpty() && mOpenReaderCount >= mReaderCount) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				thread.interrupt();
+				return null;
+			}
+			
+			// the pool was closed or emptied while the thread waited
+			if (!mKeepOpen || mReaderCount == 0) {
+				return acquireReader();
+			}
+		}
+		
+		if (!mIdleReaders.isEmpty()) {
+			reader = (Reader)mIdleReaders.lastElement();
+			mIdleReaders.removeElementAt(mIdleReaders.size() - 1);
+		} else {
+			Database database = openHandle();
+			if (!(database instanceof Database)) {
+				return null;
+			}
+			
+			reader = new Reader(database, new StatementCache(mStatementCacheSize), mReaderGeneration);
+			mOpenReaderCount++;
+		}
+		
+		reader.owner = thread;
+		reader.useCount = 1;
+		mActiveReaders.addElement(reader);
+		return reader.database;
+	}
+	
+	/**
+	 * Release a handle returned by acquire() or acquireReader()
+	 * @param	database	The handle to release
+	 * @param	error	The error raised while the handle was in use or null, a
+	 * shared handle that failed is closed so the next call reopens it
+	 */
+	synchronized void release(Database database, Exception error) {
+		if (!(database instanceof Database)) {
+			return;
+		}
+		
+		Reader reader = findReader(database);
+		if (reader instanceof Reader) {
+			releaseReader(reader, error);
+			return;
+		}
+		
+		if (database != mWriterHandle || mWriterHolds == 0) {
+			// a handle opened for a single read
+			closeDatabase(database);
+			return;
+		}
+		
+		if (database == mDatabase && isFatal(error)) {
+			mInvalid = true;
+		}
+		
+		if (--mWriterHolds > 0) {
+			return;
+		}
+		
+		mWriter = null;
+		mWriterHandle = null;
+		mTransactionLevel = 0;
+		mTransaction = null;
+		notifyAll();
+		
+		if (database != mDatabase) {
+			closeDatabase(database);
+			return;
+		}
+		
+		mUseCount--;
+		mLastUsed = System.currentTimeMillis();
+		if (mUseCount == 0 && (mInvalid || !mKeepOpen)) {
+			closeHandle();
+		}
+	}
+	
+	/**
+	 * Begin a transaction on a handle, on the writer handle inside a transaction that 
+	 * is already open this is a SAVEPOINT
+	 * @param	database	A handle from acquire()
+	 */
+	void begin(Database database) throws DatabaseException {
+		if (!isWriterHandle(database)) {
+			database.beginTransaction();
+			return;
+		}
+		
+		if (mTransactionLevel == 0) {
+			database.beginTransaction();
+		} else {
+			execute(database, "SAVEPOINT " + getSavepointName(mTransactionLevel));
+		}
+		mTransactionLevel++;
+	}
+	
+	/**
+	 * Commit the innermost transaction of a handle, a SAVEPOINT is released into 
+	 * the transaction around it
+	 */
+	void commit(Database database) throws DatabaseException {
+		if (!isWriterHandle(database) || mTransactionLevel == 0) {
+			database.commitTransaction();
+			return;
+		}
+		
+		if (mTransactionLevel == 1) {
+			// a failed commit leaves the transaction open for the rollback
+			database.commitTransaction();
+		} else {
+			execute(database, "RELEASE " + getSavepointName(mTransactionLevel - 1));
+		}
+		mTransactionLevel--;
+	}
+	
+	/**
+	 * Roll back the innermost transaction of a handle, a SAVEPOINT is rolled back 
+	 * without ending the transaction around it
+	 */
+	void rollback(Database database) throws DatabaseException {
+		if (!isWriterHandle(database) || mTransactionLevel == 0) {
+			database.rollbackTransaction();
+			return;
+		}
+		
+		mTransactionLevel--;
+		if (mTransactionLevel == 0) {
+			database.rollbackTransaction();
+		} else {
+			String savepoint = getSavepointName(mTransactionLevel);
+			execute(database, "ROLLBACK TO " + savepoint);
+			execute(database, "RELEASE " + savepoint);
+		}
+	}
+	
+	/**
+	 * @return	The number of transactions and savepoints open on the writer handle
+	 * of the calling thread
+	 */
+	synchronized int getTransactionLevel() {
+		return mWriter == Thread.currentThread() ? mTransactionLevel : 0;
+	}
+	
+	/**
+	 * @return	The innermost Transaction open on the writer handle of the calling 
+	 * thread or null
+	 */
+	synchronized Transaction getTransaction() {
+		return mWriter == Thread.currentThread() ? mTransaction : null;
+	}
+	
+	/**
+	 * @param	transaction	The innermost Transaction open on the writer handle of 
+	 * the calling thread
+	 */
+	synchronized void setTransaction(Transaction transaction) {
+		if (mWriter == Thread.currentThread()) {
+			mTransaction = transaction;
+		}
+	}
+	
+	/**
+	 * @return	Is the handle the writer handle of the calling thread? Only that thread
+	 * changes the transaction level, so begin, commit and rollback use it unlocked
+	 */
+	private synchronized boolean isWriterHandle(Database database) {
+		return database == mWriterHandle && mWriter == Thread.currentThread();
+	}
+	
+	private static String getSavepointName(int level) {
+		return "provider_savepoint_" + level;
+	}
+	
+	private static void execute(Database database, String sql) throws DatabaseException {
+		Statement statement = database.createStatement(sql);
+		try {
+			statement.prepare();
+			statement.execute();
+		} finally {
+			DatabaseHelper.closeStatement(statement);
+		}
+	}
+	
+	/**
+	 * Prepare a statement on a handle returned by acquire(), statements on the
+	 * shared handle come from the statement cache
+	 * @param	database	The handle to prepare the statement on
+	 * @param	sql	The SQL text of the statement
+	 * @return	A prepared statement that must be passed to finish()
+	 */
+	Statement prepare(Database database, String sql) throws DatabaseException {
+		long start = startTimer();
+		try {
+			StatementCache statementCache = null;
+			synchronized (this) {
+				if (database == mDatabase) {
+					statementCache = mStatementCache;
+				} else {
+					Reader reader = findReader(database);
+					if (reader instanceof Reader) {
+						statementCache = reader.statementCache;
+					}
+				}
+			}
+			
+			// the handle belongs to the calling thread so only the cache is locked
+			if (statementCache instanceof StatementCache) {
+				return statementCache.prepare(database, sql);
+			}
+			
+			Statement statement = database.createStatement(sql);
+			statement.prepare();
+			return statement;
+		} finally {
+			endPhase(ProviderListener.PHASE_PREPARE, sql, start);
+		}
+	}
+	
+	/**
+	 * Finish with a statement returned by prepare()
+	 * @param	statement	The statement to finish with
+	 * @param	error	The error raised while the statement was used or null
+	 */
+	void finish(Statement statement, Exception error) {
+		if (!(statement instanceof Statement)) {
+			return;
+		}
+		
+		StatementCache statementCache = mStatementCache;
+		synchronized (this) {
+			for (int i = 0; i < mActiveReaders.size(); i++) {
+				Reader reader = (Reader)mActiveReaders.elementAt(i);
+				if (reader.statementCache.isCheckedOut(statement)) {
+					statementCache = reader.statementCache;
+					break;
+				}
+			}
+		}
+		
+		// a statement that no cache has checked out is closed by the release
+		statementCache.release(statement, error instanceof Exception);
+	}
+	
+	/**
+	 * Drop every cached statement, called after a query that changes the schema
+	 */
+	synchronized void schemaChanged() {
+		mStatementCache.clear();
+		for (int i = 0; i < mIdleReaders.size(); i++) {
+			((Reader)mIdleReaders.elementAt(i)).statementCache.clear();
+		}
+		
+		for (int i = 0; i < mActiveReaders.size(); i++) {
+			((Reader)mActiveReaders.elementAt(i)).statementCache.clear();
+		}
+	}
+	
+	/**
+	 * @param	capacity	The number of statements to cache per handle, 0 disables the cache
+	 */
+	synchronized void setStatementCacheSize(int capacity) {
+		mStatementCacheSize = capacity;
+		mStatementCache.setCapacity(capacity);
+		for (int i = 0; i < mIdleReaders.size(); i++) {
+			((Reader)mIdleReaders.elementAt(i)).statementCache.setCapacity(capacity);
+		}
+		
+		for (int i = 0; i < mActiveReaders.size(); i++) {
+			((Reader)mActiveReaders.elementAt(i)).statementCache.setCapacity(capacity);
+		}
+	}
+	
+	/**
+	 * @return	The statistics of the writer and reader statement caches added together
+	 */
+	synchronized CacheStatistics getStatementCacheStatistics() {
+		CacheStatistics statistics = mStatementCache.getStatistics();
+		for (int i = 0; i < mIdleReaders.size(); i++) {
+			statistics = add(statistics, ((Reader)mIdleReaders.elementAt(i)).statementCache.getStatistics());
+		}
+		
+		for (int i = 0; i < mActiveReaders.size(); i++) {
+			statistics = add(statistics, ((Reader)mActiveReaders.elementAt(i)).statementCache.getStatistics());
+		}
+		
+		return statistics;
+	}
+	
+	/**
+	 * @param	listener	The listener that receives timings or null to stop timing
+	 */
+	void setListener(ProviderListener listener) {
+		mListener = listener;
+	}
+	
+	ProviderListener getListener() {
+		return mListener;
+	}
+	
+	/**
+	 * @return	The start time of a phase or -1 when no listener is installed
+	 */
+	long startTimer() {
+		return mListener instanceof ProviderListener ? System.currentTimeMillis() : -1;
+	}
+	
+	/**
+	 * @return	The milliseconds since a time from startTimer() or -1 if it was not timed
+	 */
+	long elapsed(long start) {
+		return start >= 0 ? System.currentTimeMillis() - start : -1;
+	}
+	
+	/**
+	 * Report a phase that started at a time from startTimer()
+	 */
+	void endPhase(int phase, String sql, long start) {
+		if (start >= 0) {
+			reportPhase(phase, sql, System.currentTimeMillis() - start);
+		}
+	}
+	
+	/**
+	 * @param	elapsed	The time the phase took or -1 if it was not timed
+	 */
+	void reportPhase(int phase, String sql, long elapsed) {
+		ProviderListener listener = mListener;
+		if (elapsed >= 0 && listener instanceof ProviderListener) {
+			listener.onPhase(phase, sql, elapsed);
+		}
+	}
+	
+	/**
+	 * @param	sql	The SQL text of the statement
+	 * @param	rows	The rows read or written or -1 if it is not known
+	 * @param	elapsed	The time the statement took or -1 if it was not timed
+	 * @param	successful	Did the statement succeed?
+	 */
+	void reportStatement(String sql, int rows, long elapsed, boolean successful) {
+		ProviderListener listener = mListener;
+		if (elapsed >= 0 && listener instanceof ProviderListener) {
+			listener.onStatement(SqlFingerprint.getOperation(sql), SqlFingerprint.getTableName(sql), 
+					sql, rows, elapsed, successful);
+		}
+	}
+	
+	/**
+	 * Close the shared handle without leaving keep open mode, used before the
+	 * database file is deleted or recreated
+	 */
+	synchronized void invalidate() {
+		mInvalid = true;
+		if (mUseCount == 0) {
+			closeHandle();
+		}
+		
+		// readers from an older generation are closed when they are released
+		mReaderGeneration++;
+		closeIdleReaders(0);
+	}
+	
+	/**
+	 * A SQL error leaves the handle usable, anything else (an IO failure or a
+	 * runtime exception from a closed handle) means it should be reopened
+	 */
+	private boolean isFatal(Exception error) {
+		if (!(error instanceof Exception)) {
+			return false;
+		}
+		
+		return error instanceof DatabaseIOException || !(error instanceof DatabaseException);
+	}
+	
+	/**
+	 * Open the handle kept between calls, switching the database to write-ahead 
+	 * logging when there are readers
+	 */
+	private void openSharedHandle() {
+		mDatabase = openHandle();
+		mInvalid = false;
+		if (mDatabase instanceof Database && mReaderCount > 0) {
+			mWriteAheadLog = enableWriteAheadLog(mDatabase);
+		}
+	}
+	
+	/**
+	 * @return	Is the database in write-ahead logging mode? An engine without it
+	 * keeps its journal mode and the readers rely on the busy retries instead
+	 */
+	private static boolean enableWriteAheadLog(Database database) {
+		Statement statement = null;
+		Cursor cursor = null;
+		try {
+			statement = database.createStatement("PRAGMA journal_mode = WAL");
+			statement.prepare();
+			cursor = statement.getCursor();
+			return cursor.next() && "wal".equalsIgnoreCase(cursor.getRow().getString(0));
+		} catch (DatabaseException e) {
+			return false;
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			DatabaseHelper.closeStatement(statement);
+		}
+	}
+	
+	private Reader findReader(Database database) {
+		for (int i = 0; i < mActiveReaders.size(); i++) {
+			Reader reader = (Reader)mActiveReaders.elementAt(i);
+			if (reader.database == database) {
+				return reader;
+			}
+		}
+		
+		return null;
+	}
+	
+	private Reader findReader(Thread thread) {
+		for (int i = 0; i < mActiveReaders.size(); i++) {
+			Reader reader = (Reader)mActiveReaders.elementAt(i);
+			if (reader.owner == thread) {
+				return reader;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Return a reader to the pool once its last use is released, a reader that failed,
+	 * belongs to an older generation or is no longer needed is closed
+	 */
+	private void releaseReader(Reader reader, Exception error) {
+		if (isFatal(error)) {
+			reader.failed = true;
+		}
+		
+		if (--reader.useCount > 0) {
+			return;
+		}
+		
+		mActiveReaders.removeElement(reader);
+		reader.owner = null;
+		reader.lastUsed = System.currentTimeMillis();
+		if (reader.failed || !mKeepOpen || reader.generation != mReaderGeneration || 
+				mOpenReaderCount > mReaderCount) {
+			closeReader(reader);
+		} else {
+			mIdleReaders.addElement(reader);
+		}
+		
+		notifyAll();
+	}
+	
+	/**
+	 * @param	idleTime	Close the idle readers unused for at least this many milliseconds
+	 */
+	private void closeIdleReaders(long idleTime) {
+		long now = System.currentTimeMillis();
+		for (int i = mIdleReaders.size() - 1; i >= 0; i--) {
+			Reader reader = (Reader)mIdleReaders.elementAt(i);
+			if (!mKeepOpen || reader.generation != mReaderGeneration || mOpenReaderCount > mReaderCount ||
+					now - reader.lastUsed >= idleTime) {
+				mIdleReaders.removeElementAt(i);
+				closeReader(reader);
+			}
+		}
+	}
+	
+	private void closeReader(Reader reader) {
+		reader.statementCache.clear();
+		closeDatabase(reader.database);
+		mOpenReaderCount--;
+	}
+	
+	private static CacheStatistics add(CacheStatistics left, CacheStatistics right) {
+		return new CacheStatistics(left.getHitCount() + right.getHitCount(), left.getMissCount() + right.getMissCount(),
+				left.getEvictionCount() + right.getEvictionCount(), left.getSize() + right.getSize(), 
+				left.getCapacity() + right.getCapacity());
+	}
+	
+	private Database openHandle() {
+		long start = startTimer();
+		Database database = DatabaseHelper.open(mBackend, mDatabaseFileRoot);
+		endPhase(ProviderListener.PHASE_OPEN, null, start);
+		return database;
+	}
+	
+	private void closeDatabase(Database database) {
+		long start = startTimer();
+		DatabaseHelper.closeDatabase(database);
+		endPhase(ProviderListener.PHASE_CLOSE, null, start);
+	}
+	
+	private void closeHandle() {
+		mStatementCache.clear();
+		if (mDatabase instanceof Database) {
+			closeDatabase(mDatabase);
+		}
+		mDatabase = null;
+		mInvalid = false;
+	}
+	
+	private void scheduleIdleTimer() {
+		cancelIdleTimer();
+		if (mIdleTimeout <= 0) {
+			return;
+		}
+		
+		// check twice per timeout so an idle handle is never kept much longer than asked
+		long period = Math.max(mIdleTimeout / 2, 1);
+		mIdleTimer = new Timer();
+		mIdleTimer.schedule(new TimerTask() {
+			public void run() {
+				closeIfIdle();
+			}
+		}, period, period);
+	}
+	
+	private void cancelIdleTimer() {
+		if (mIdleTimer instanceof Timer) {
+			mIdleTimer.cancel();
+			mIdleTimer = null;
+		}
+	}
+	
+	private synchronized void closeIfIdle() {
+		if (mDatabase instanceof Database && mUseCount == 0 &&
+				System.currentTimeMillis() - mLastUsed >= mIdleTimeout) {
+			closeHandle();
+		}
+		
+		closeIdleReaders(mIdleTimeout);
+	}
+	
+	/**
+	 * A handle of the reader pool and the statements prepared on it
+	 */
+	private static final class Reader {
+		Database database;
+		StatementCache statementCache;
+		int generation;
+		Thread owner;
+		int useCount;
+		long lastUsed;
+		boolean failed;
+		
+		Reader(Database database, StatementCache statementCache, int generation) {
+			this.database = database;
+			this.statementCache = statementCache;
+			this.generation = generation;
+		}
+	}
+}
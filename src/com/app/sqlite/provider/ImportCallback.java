@@ -0,0 +1,21 @@
+package com.app.sqlite.provider;
+
+/**
+ * Receives the progress of a seed import once each chunk is committed
+ * @author samkirton
+ */
+public interface ImportCallback {
+	/**
+	 * @param	tableName	The table being imported into
+	 * @param	rowCount	The number of rows committed so far, for an atomic import
+	 * the number of rows written so far
+	 */
+	public void onProgress(String tableName, int rowCount);
+	
+	/**
+	 * @param	tableName	The table being imported into
+	 * @param	rowCount	The number of rows committed before the import failed,
+	 * which are kept in the table
+	 */
+	public void onFailure(String tableName, int rowCount);
+}
@@ -0,0 +1,16 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.DatabaseException;
+
+/**
+ * One step of the schema of a database, the step at index i of the list passed
+ * to SQLProvider.migrate() upgrades schema version i to version i + 1
+ * @author samkirton
+ */
+public interface Migration {
+	/**
+	 * Upgrade the schema, an exception rolls back the step and stops the migration
+	 * @param	transaction	Runs statements inside the transaction of the step
+	 */
+	public void migrate(SchemaTransaction transaction) throws DatabaseException;
+}
@@ -0,0 +1,16 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.base.BaseModel;
+
+/**
+ * Receives the rows of a typed SELECT query one model at a time
+ * @author samkirton
+ */
+public interface ModelCallback {
+	/**
+	 * @param	model	The model populated from the current row
+	 * @return	Should the query continue? Returning false stops the query and 
+	 * closes the cursor
+	 */
+	public boolean onModel(BaseModel model);
+}
@@ -0,0 +1,80 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.DataTypeException;
+import com.app.sqlite.backend.Row;
+import com.app.sqlite.base.BaseModel;
+import com.app.sqlite.base.ModelMetadata;
+
+/**
+ * Copies the rows of a cursor into models. The model columns are matched to the
+ * row columns by name once, on the first row, and every later row is copied by
+ * index into the typed storage of the model
+ * @author samkirton
+ */
+final class ModelMapper {
+	private ModelMetadata mMetadata;
+	private int[] mRowIndexes;
+	
+	ModelMapper(ModelMetadata metadata) {
+		mMetadata = metadata;
+	}
+	
+	/**
+	 * @param	row	The current row of the cursor
+	 * @param	model	The model to populate, columns missing from the row are left 
+	 * unchanged and the model is marked clean
+	 */
+	void fill(Row row, BaseModel model) throws DataTypeException {
+		if (!(mRowIndexes instanceof int[])) {
+			mRowIndexes = resolve(row.getColumnNames());
+		}
+		
+		for (int i = 0; i < mRowIndexes.length; i++) {
+			int index = mRowIndexes[i];
+			if (index == -1) {
+				continue;
+			}
+			
+			if (row.isNull(index)) {
+				model.setNull(i);
+				continue;
+			}
+			
+			switch (mMetadata.getColumnType(i)) {
+				case BaseModel.TYPE_PRIMARY_KEY:
+				case BaseModel.TYPE_LONG:
+					model.setLong(i, row.getLong(index));
+					break;
+				case BaseModel.TYPE_INTEGER:
+					model.setInt(i, row.getInteger(index));
+					break;
+				case BaseModel.TYPE_FLOAT:
+					model.setDouble(i, row.getDouble(index));
+					break;
+				case BaseModel.TYPE_BLOB:
+					model.setBlob(i, row.getBlobBytes(index));
+					break;
+				default:
+					model.setString(i, row.getString(index));
+					break;
+			}
+		}
+		
+		model.markClean();
+	}
+	
+	private int[] resolve(String[] columnNames) {
+		int[] rowIndexes = new int[mMetadata.getColumnCount()];
+		for (int i = 0; i < rowIndexes.length; i++) {
+			rowIndexes[i] = -1;
+			for (int j = 0; j < columnNames.length; j++) {
+				if (columnNames[j].equalsIgnoreCase(mMetadata.getColumnName(i))) {
+					rowIndexes[i] = j;
+					break;
+				}
+			}
+		}
+		
+		return rowIndexes;
+	}
+}
@@ -0,0 +1,39 @@
+package com.app.sqlite.provider;
+
+import java.util.Vector;
+
+/**
+ * A page of rows returned by SQLProvider.selectPage, the continuation token is
+ * passed back to selectPage to read the page that follows
+ * @author samkirton
+ */
+public final class Page {
+	private Vector mRows;
+	private String mContinuationToken;
+	
+	/**
+	 * @return	A Vector of the rows in this page
+	 */
+	public Vector getRows() {
+		return mRows;
+	}
+	
+	/**
+	 * @return	An opaque token that reads the next page or null if this is the last page
+	 */
+	public String getContinuationToken() {
+		return mContinuationToken;
+	}
+	
+	/**
+	 * @return	Is there another page after this one?
+	 */
+	public boolean hasMore() {
+		return mContinuationToken instanceof String;
+	}
+	
+	Page(Vector rows, String continuationToken) {
+		mRows = rows;
+		mContinuationToken = continuationToken;
+	}
+}
@@ -0,0 +1,116 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.DataTypeException;
+import com.app.sqlite.backend.Row;
+import com.app.sqlite.base.BaseModel;
+
+/**
+ * The position of the last row of a page, the ORDER BY value and pid of that row.
+ * Encoded as [pid]:[type][value] where type is N (null), L (long), D (double) or 
+ * S (string) so the value is bound with the same type it was read with
+ * @author samkirton
+ */
+final class PageToken {
+	private long mPid;
+	private Object mValue;
+	
+	private static final char TYPE_NULL = 'N';
+	private static final char TYPE_LONG = 'L';
+	private static final char TYPE_DOUBLE = 'D';
+	private static final char TYPE_STRING = 'S';
+	
+	long getPid() {
+		return mPid;
+	}
+	
+	/**
+	 * @return	The ORDER BY value as a Long, Double or String, null for a NULL column
+	 */
+	Object getValue() {
+		return mValue;
+	}
+	
+	/**
+	 * Read the position of a row
+	 * @param	row	The last row of a page
+	 * @param	columnOrderBy	The ORDER BY column or null when the page is ordered by pid
+	 */
+	static PageToken fromRow(Row row, String columnOrderBy) throws DataTypeException {
+		PageToken token = new PageToken();
+		token.mPid = row.getLong(row.getColumnIndex(BaseModel.FIELD_PID));
+		if (columnOrderBy instanceof String) {
+			Object value = row.getObject(row.getColumnIndex(columnOrderBy));
+			if (value instanceof Integer) {
+				value = new Long(((Integer)value).intValue());
+			} else if (value instanceof Float) {
+				value = new Double(((Float)value).floatValue());
+			} else if (value instanceof Long || value instanceof Double) {
+				// already one of the bound types
+			} else if (value instanceof Object) {
+				value = value.toString();
+			}
+			
+			token.mValue = value;
+		}
+		
+		return token;
+	}
+	
+	/**
+	 * @param	continuationToken	A token returned by toString()
+	 * @return	The decoded position
+	 * @throws	IllegalArgumentException	The token was not created by PageToken
+	 */
+	static PageToken parse(String continuationToken) {
+		int separator = continuationToken.indexOf(':');
+		if (separator < 1 || separator == continuationToken.length() - 1) {
+			throw new IllegalArgumentException("Invalid continuation token");
+		}
+		
+		PageToken token = new PageToken();
+		try {
+			token.mPid = Long.parseLong(continuationToken.substring(0, separator));
+			
+			String value = continuationToken.substring(separator + 2);
+			switch (continuationToken.charAt(separator + 1)) {
+				case TYPE_NULL:
+					token.mValue = null;
+					break;
+				case TYPE_LONG:
+					token.mValue = new Long(Long.parseLong(value));
+					break;
+				case TYPE_DOUBLE:
+					token.mValue = Double.valueOf(value);
+					break;
+				case TYPE_STRING:
+					token.mValue = value;
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid continuation token");
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid continuation token");
+		}
+		
+		return token;
+	}
+	
+	public String toString() {
+		StringBuffer stringBuffer = new StringBuffer();
+		stringBuffer.append(mPid);
+		stringBuffer.append(':');
+		if (mValue instanceof Long) {
+			stringBuffer.append(TYPE_LONG);
+		} else if (mValue instanceof Double) {
+			stringBuffer.append(TYPE_DOUBLE);
+		} else if (mValue instanceof String) {
+			stringBuffer.append(TYPE_STRING);
+		} else {
+			stringBuffer.append(TYPE_NULL);
+			return stringBuffer.toString();
+		}
+		
+		stringBuffer.append(mValue.toString());
+		return stringBuffer.toString();
+	}
+}
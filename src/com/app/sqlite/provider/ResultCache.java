@@ -0,0 +1,273 @@
+package com.app.sqlite.provider;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * A bounded LRU cache of query results keyed by the SQL text and the bound values.
+ * Each result is tagged with the tables it reads so a write to a table drops only
+ * the results of that table. The budget is counted in rows, an empty result counts
+ * as one row
+ * @author samkirton
+ */
+final class ResultCache {
+	private int mCapacity;
+	private int mSize;
+	private Hashtable mEntries;
+	private Hashtable mTables;
+	private Entry mHead;
+	private Entry mTail;
+	private long mGeneration;
+	private int mHitCount;
+	private int mMissCount;
+	private int mEvictionCount;
+	
+	ResultCache(int capacity) {
+		mCapacity = capacity;
+		mEntries = new Hashtable();
+		mTables = new Hashtable();
+	}
+	
+	synchronized boolean isEnabled() {
+		return mCapacity > 0;
+	}
+	
+	/**
+	 * @param	key	A key from buildKey()
+	 * @return	A copy of the cached rows or null on a miss
+	 */
+	synchronized Vector get(String key) {
+		Entry entry = (Entry)mEntries.get(key);
+		if (!(entry instanceof Entry)) {
+			mMissCount++;
+			return null;
+		}
+		
+		mHitCount++;
+		if (mHead != entry) {
+			unlink(entry);
+			addToFront(entry);
+		}
+		
+		return copy(entry.rows);
+	}
+	
+	/**
+	 * @return	A value that changes on every invalidation, read it before running
+	 * the query and pass it to put()
+	 */
+	synchronized long getGeneration() {
+		return mGeneration;
+	}
+	
+	/**
+	 * Cache the rows of a query, the rows are dropped if a table was written after
+	 * the generation was read because they may already be stale
+	 * @param	key	A key from buildKey()
+	 * @param	tables	The tables the query reads
+	 * @param	rows	The rows returned by the query, the cache keeps a copy
+	 * @param	generation	The value of getGeneration() before the query was run
+	 */
+	synchronized void put(String key, String[] tables, Vector rows, long generation) {
+		int cost = Math.max(rows.size(), 1);
+		if (generation != mGeneration || cost > mCapacity) {
+			return;
+		}
+		
+		Entry previous = (Entry)mEntries.get(key);
+		if (previous instanceof Entry) {
+			remove(previous);
+		}
+		
+		Entry entry = new Entry(key, new String[tables.length], copy(rows), cost);
+		for (int i = 0; i < tables.length; i++) {
+			entry.tables[i] = tables[i].toLowerCase();
+			Vector tableEntries = (Vector)mTables.get(entry.tables[i]);
+			if (!(tableEntries instanceof Vector)) {
+				tableEntries = new Vector();
+				mTables.put(entry.tables[i], tableEntries);
+			}
+			tableEntries.addElement(entry);
+		}
+		
+		mEntries.put(key, entry);
+		mSize += cost;
+		addToFront(entry);
+		evictIfFull();
+	}
+	
+	/**
+	 * Drop every result that reads the table
+	 * @param	tableName	The table that was written
+	 */
+	synchronized void invalidate(String tableName) {
+		mGeneration++;
+		Vector tableEntries = (Vector)mTables.get(tableName.toLowerCase());
+		if (!(tableEntries instanceof Vector)) {
+			return;
+		}
+		
+		while (!tableEntries.isEmpty()) {
+			remove((Entry)tableEntries.lastElement());
+		}
+	}
+	
+	/**
+	 * Drop every result, used when a write cannot be traced to one table
+	 */
+	synchronized void clear() {
+		mGeneration++;
+		mEntries.clear();
+		mTables.clear();
+		mHead = null;
+		mTail = null;
+		mSize = 0;
+	}
+	
+	synchronized void setCapacity(int capacity) {
+		mCapacity = capacity;
+		evictIfFull();
+	}
+	
+	synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(mHitCount, mMissCount, mEvictionCount, mSize, mCapacity);
+	}
+	
+	/**
+	 * Build the cache key of a query. Whitespace outside of string literals is
+	 * collapsed and each value is written with its type and length so different
+	 * values can never produce the same key
+	 * @param	sql	The SQL text of the query
+	 * @param	arguments	The values bound to the query or null
+	 * @return	The key or null if a value cannot be part of a key
+	 */
+	static String buildKey(String sql, Object[] arguments) {
+		StringBuffer key = new StringBuffer(sql.length() + 16);
+		boolean inLiteral = false;
+		boolean pendingSpace = false;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (!inLiteral && c <= ' ') {
+				pendingSpace = key.length() > 0;
+				continue;
+			}
+			
+			if (pendingSpace) {
+				key.append(' ');
+				pendingSpace = false;
+			}
+			
+			if (c == '\'') {
+				inLiteral = !inLiteral;
+			}
+			key.append(c);
+		}
+		
+		if (arguments instanceof Object[]) {
+			for (int i = 0; i < arguments.length; i++) {
+				Object argument = arguments[i];
+				String value;
+				if (!(argument instanceof Object)) {
+					key.append("\u0000N");
+					continue;
+				} else if (argument instanceof String) {
+					key.append("\u0000S");
+					value = (String)argument;
+				} else if (argument instanceof Long) {
+					key.append("\u0000L");
+					value = argument.toString();
+				} else if (argument instanceof Integer) {
+					key.append("\u0000I");
+					value = argument.toString();
+				} else if (argument instanceof Double) {
+					key.append("\u0000D");
+					value = argument.toString();
+				} else {
+					return null;
+				}
+				
+				key.append(value.length());
+				key.append(':');
+				key.append(value);
+			}
+		}
+		
+		return key.toString();
+	}
+	
+	private void evictIfFull() {
+		while (mSize > mCapacity && mTail instanceof Entry) {
+			remove(mTail);
+			mEvictionCount++;
+		}
+	}
+	
+	private void remove(Entry entry) {
+		mEntries.remove(entry.key);
+		mSize -= entry.cost;
+		unlink(entry);
+		for (int i = 0; i < entry.tables.length; i++) {
+			Vector tableEntries = (Vector)mTables.get(entry.tables[i]);
+			if (tableEntries instanceof Vector) {
+				tableEntries.removeElement(entry);
+				if (tableEntries.isEmpty()) {
+					mTables.remove(entry.tables[i]);
+				}
+			}
+		}
+	}
+	
+	private void unlink(Entry entry) {
+		if (entry.previous instanceof Entry) {
+			entry.previous.next = entry.next;
+		} else {
+			mHead = entry.next;
+		}
+		
+		if (entry.next instanceof Entry) {
+			entry.next.previous = entry.previous;
+		} else {
+			mTail = entry.previous;
+		}
+		
+		entry.previous = null;
+		entry.next = null;
+	}
+	
+	private void addToFront(Entry entry) {
+		entry.next = mHead;
+		if (mHead instanceof Entry) {
+			mHead.previous = entry;
+		}
+		
+		mHead = entry;
+		if (!(mTail instanceof Entry)) {
+			mTail = entry;
+		}
+	}
+	
+	private static Vector copy(Vector rows) {
+		Vector copy = new Vector(rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			copy.addElement(rows.elementAt(i));
+		}
+		
+		return copy;
+	}
+	
+	private static final class Entry {
+		String key;
+		String[] tables;
+		Vector rows;
+		int cost;
+		Entry previous;
+		Entry next;
+		
+		Entry(String key, String[] tables, Vector rows, int cost) {
+			this.key = key;
+			this.tables = tables;
+			this.rows = rows;
+			this.cost = cost;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.Row;
+
+/**
+ * Receives the rows of a streamed SELECT query one at a time
+ * @author samkirton
+ */
+public interface RowCallback {
+	/**
+	 * @param	row	The current row
+	 * @return	Should the query continue? Returning false stops the query and 
+	 * closes the cursor
+	 */
+	public boolean onRow(Row row);
+}
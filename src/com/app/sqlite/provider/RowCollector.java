@@ -0,0 +1,23 @@
+package com.app.sqlite.provider;
+
+import java.util.Vector;
+
+import com.app.sqlite.backend.Row;
+
+/**
+ * A RowCallback that keeps every row, used by the SQLProvider methods that
+ * return a Vector of rows
+ * @author samkirton
+ */
+final class RowCollector implements RowCallback {
+	private Vector mRows = new Vector();
+	
+	public boolean onRow(Row row) {
+		mRows.addElement(row);
+		return true;
+	}
+	
+	Vector getRows() {
+		return mRows;
+	}
+}
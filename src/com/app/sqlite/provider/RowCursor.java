@@ -0,0 +1,118 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Row;
+import com.app.sqlite.backend.Statement;
+import com.app.sqlite.helper.DatabaseHelper;
+import com.app.sqlite.metrics.ProviderListener;
+
+/**
+ * A forward only cursor over the results of a SELECT query that reads one row
+ * at a time from the live database cursor. The cursor holds a database handle
+ * until it is closed, close() must be called in a finally block unless next()
+ * has already returned false
+ * @author samkirton
+ */
+public final class RowCursor {
+	private DatabaseConnection mConnection;
+	private Database mDatabase;
+	private Statement mStatement;
+	private Cursor mCursor;
+	private Row mRow;
+	private Exception mError;
+	private boolean mClosed;
+	private String mSql;
+	private int mRowCount;
+	private long mElapsed;
+	private long mFetchTime;
+	
+	/**
+	 * @param	sql	The SQL text of the statement, used to report timings
+	 * @param	elapsed	The time spent preparing and executing the statement or -1 if
+	 * it was not timed
+	 */
+	RowCursor(DatabaseConnection connection, Database database, Statement statement, Cursor cursor,
+			String sql, long elapsed) {
+		mConnection = connection;
+		mDatabase = database;
+		mStatement = statement;
+		mCursor = cursor;
+		mSql = sql;
+		mElapsed = elapsed;
+	}
+	
+	/**
+	 * Move to the next row, the cursor closes itself after the last row
+	 * @return	Is there another row?
+	 */
+	public boolean next() throws DatabaseException {
+		if (mClosed) {
+			return false;
+		}
+		
+		// only the time spent in the cursor is timed, not the time the caller spends on a row
+		long start = mConnection.startTimer();
+		boolean hasRow;
+		try {
+			hasRow = mCursor.next();
+			if (hasRow) {
+				mRow = mCursor.getRow();
+				mRowCount++;
+			}
+		} catch (DatabaseException e) {
+			mError = e;
+			addFetchTime(start);
+			close();
+			throw e;
+		}
+		
+		addFetchTime(start);
+		if (!hasRow) {
+			close();
+		}
+		
+		return hasRow;
+	}
+	
+	/**
+	 * @return	The row the cursor is positioned on
+	 */
+	public Row getRow() {
+		return mRow;
+	}
+	
+	/**
+	 * @return	Has the cursor been closed?
+	 */
+	public boolean isClosed() {
+		return mClosed;
+	}
+	
+	/**
+	 * Close the cursor and release its statement and database handle, it is
+	 * safe to call close() more than once
+	 */
+	public void close() {
+		if (mClosed) {
+			return;
+		}
+		
+		mClosed = true;
+		mRow = null;
+		DatabaseHelper.closeCursor(mCursor);
+		mConnection.finish(mStatement, mError);
+		mConnection.release(mDatabase, mError);
+		if (mElapsed >= 0) {
+			mConnection.reportPhase(ProviderListener.PHASE_FETCH, mSql, mFetchTime);
+			mConnection.reportStatement(mSql, mRowCount, mElapsed + mFetchTime, !(mError instanceof Exception));
+		}
+	}
+	
+	private void addFetchTime(long start) {
+		if (start >= 0) {
+			mFetchTime += System.currentTimeMillis() - start;
+		}
+	}
+}
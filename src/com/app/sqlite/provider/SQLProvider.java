@@ -1,80 +1,528 @@
 package com.app.sqlite.provider;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.Vector;
 
-import com.app.sqlite.base.DatabaseField;
+import com.app.sqlite.backend.BackendFactory;
+import com.app.sqlite.backend.BusyRetryBackend;
+import com.app.sqlite.backend.Cursor;
+import com.app.sqlite.backend.DataTypeException;
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseBackend;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Row;
+import com.app.sqlite.backend.Statement;
 import com.app.sqlite.base.BaseModel;
+import com.app.sqlite.base.ModelFactory;
+import com.app.sqlite.base.ModelMetadata;
 import com.app.sqlite.helper.DatabaseHelper;
 import com.app.sqlite.helper.ResourceHelper;
-
-import net.rim.device.api.database.Cursor;
-import net.rim.device.api.database.Database;
-import net.rim.device.api.database.Row;
-import net.rim.device.api.database.Statement;
+import com.app.sqlite.helper.SchemaScriptReader;
+import com.app.sqlite.helper.SeedFileReader;
+import com.app.sqlite.metrics.IndexSuggestion;
+import com.app.sqlite.metrics.ProviderListener;
+import com.app.sqlite.metrics.QueryPlanAdvisor;
+import com.app.sqlite.query.QueryBuilder;
 
 /**
- * A provider class used to interact with the local SQLite database
+ * A provider class used to interact with the local SQLite database. The provider
+ * can be shared between threads, writes run one at a time on a single handle and
+ * reads run on a pool of reader handles while the database is kept open, see
+ * setReaderCount(int). A database that is busy is retried with a growing delay 
+ * before a call fails, see setBusyRetry(int, long)
  * @author samkirton
  */
 public final class SQLProvider {
+	private BusyRetryBackend mBackend;
 	private String mDatabaseFileRoot;
+	private DatabaseConnection mConnection;
+	private WriteBehindQueue mWriteQueue;
+	private ResultCache mResultCache;
+	
+	public static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+	public static final int DEFAULT_BLOB_CHUNK_SIZE = 32 * 1024;
+	
+	// the lowest SQLITE_MAX_VARIABLE_NUMBER, the default of SQLite before 3.32
+	public static final int MAX_BOUND_VARIABLES = 999;
+	
+	// the TEMP table writeBlob() stores the chunks of a blob in before they are joined
+	private static final String BLOB_CHUNK_TABLE = "provider_blob_chunks";
 	
+	/**
+	 * @param	databaseFileRoot	The path of the database for the default backend
+	 * @see	BackendFactory#getDefault()
+	 */
 	public SQLProvider(String databaseFileRoot) {
+		this(databaseFileRoot, BackendFactory.getDefault());
+	}
+	
+	/**
+	 * @param	databaseFileRoot	The path of the database, its format is defined by the backend
+	 * @param	backend	The SQL engine that stores the database
+	 */
+	public SQLProvider(String databaseFileRoot, DatabaseBackend backend) {
+		mBackend = new BusyRetryBackend(backend);
 		mDatabaseFileRoot = databaseFileRoot;
+		mConnection = new DatabaseConnection(mBackend, databaseFileRoot);
+		mResultCache = new ResultCache(0);
+	}
+	
+	/**
+	 * Open the database and keep the handle open between calls instead of opening
+	 * and closing it around every call. The handle is reopened on the next call if
+	 * it fails or is closed by the idle timeout
+	 * @return	Was the database opened successfully?
+	 */
+	public boolean open() {
+		return mConnection.open();
+	}
+	
+	/**
+	 * Close the database handle opened by open(), later calls go back to opening
+	 * the database for each call
+	 */
+	public void close() {
+		mConnection.close();
+	}
+	
+	/**
+	 * @return	Is the database handle kept open between calls?
+	 */
+	public boolean isOpen() {
+		return mConnection.isOpen();
+	}
+	
+	/**
+	 * Set the number of reader handles used while the database is kept open by
+	 * open(), reads from different threads then run at the same time as each other
+	 * and as the writer. The database is switched to write-ahead logging when the
+	 * engine supports it so a reader does not wait for a write to commit. A thread
+	 * that is writing, such as inside a transaction, reads on the writer handle
+	 * @param	readerCount	The number of reader handles, 0 runs reads on the writer handle
+	 */
+	public void setReaderCount(int readerCount) {
+		mConnection.setReaderCount(readerCount);
+	}
+	
+	/**
+	 * @return	Is the database in write-ahead logging mode? It is switched when it is 
+	 * opened by open() with readers
+	 */
+	public boolean isWriteAheadLog() {
+		return mConnection.isWriteAheadLog();
+	}
+	
+	/**
+	 * Set how a database that is busy or locked by another handle is retried, the
+	 * delay doubles after each attempt up to BusyRetryBackend.MAX_DELAY
+	 * @param	maxAttempts	The number of attempts before a call fails, 1 disables the retries
+	 * @param	initialDelay	The delay before the first retry in milliseconds
+	 */
+	public void setBusyRetry(int maxAttempts, long initialDelay) {
+		mBackend.setRetryPolicy(maxAttempts, initialDelay);
+	}
+	
+	/**
+	 * @return	The number of times an operation was retried because the database was busy
+	 */
+	public int getBusyRetryCount() {
+		return mBackend.getRetryCount();
+	}
+	
+	/**
+	 * @return	The number of operations that failed because the database stayed busy
+	 */
+	public int getBusyFailureCount() {
+		return mBackend.getFailureCount();
+	}
+	
+	/**
+	 * Close the handle kept by open() once it has not been used for the provided
+	 * time, it is reopened by the next call
+	 * @param	idleTimeout	The idle time in milliseconds, 0 disables the timeout
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		mConnection.setIdleTimeout(idleTimeout);
+	}
+	
+	/**
+	 * Set the number of prepared statements cached while the database is kept
+	 * open by open(), the least recently used statement is closed when the
+	 * cache is full
+	 * @param	capacity	The number of statements to cache, 0 disables the cache
+	 */
+	public void setStatementCacheSize(int capacity) {
+		mConnection.setStatementCacheSize(capacity);
+	}
+	
+	/**
+	 * @return	The hit, miss and eviction counts of the prepared statement cache
+	 */
+	public CacheStatistics getStatementCacheStatistics() {
+		return mConnection.getStatementCacheStatistics();
+	}
+	
+	/**
+	 * Cache the rows returned by the Vector versions of selectAll, selectWhere and
+	 * select(QueryBuilder) so repeating a query between writes does not read the
+	 * database again. A write through the provider drops the cached results of the
+	 * table it writes, the least recently used results are dropped when the cache 
+	 * is full. Writes made by triggers or outside of the provider are not seen, call
+	 * clearResultCache() after them
+	 * @param	maxRows	The number of rows to cache, 0 disables the cache
+	 */
+	public void setResultCacheSize(int maxRows) {
+		mResultCache.setCapacity(maxRows);
+	}
+	
+	/**
+	 * @return	The hit, miss and eviction counts of the result cache, the size and 
+	 * capacity are counted in rows
+	 */
+	public CacheStatistics getResultCacheStatistics() {
+		return mResultCache.getStatistics();
+	}
+	
+	/**
+	 * Drop every cached result
+	 */
+	public void clearResultCache() {
+		mResultCache.clear();
+	}
+	
+	/**
+	 * Report the timings of each open, prepare, bind, execute, fetch, commit and close
+	 * and of each statement to a listener
+	 * @param	listener	The listener, such as a MetricsRecorder, or null to stop reporting
+	 */
+	public void setListener(ProviderListener listener) {
+		mConnection.setListener(listener);
+	}
+	
+	public ProviderListener getListener() {
+		return mConnection.getListener();
+	}
+	
+	/**
+	 * Queue the writes made through the Async methods for a background writer thread
+	 * that commits them in groups, each group is one transaction
+	 * @param	maxQueueSize	The number of pending writes before the Async methods block
+	 * @param	maxBatchSize	The maximum number of writes committed in one transaction
+	 * @param	maxBatchDelay	How long in milliseconds the writer waits for a batch to fill
+	 */
+	public synchronized void enableWriteBehind(int maxQueueSize, int maxBatchSize, long maxBatchDelay) {
+		if (mWriteQueue instanceof WriteBehindQueue) {
+			throw new IllegalStateException("Write-behind is already enabled");
+		}
+		
+		mWriteQueue = new WriteBehindQueue(this, maxQueueSize, maxBatchSize, maxBatchDelay);
+		mWriteQueue.start();
+	}
+	
+	/**
+	 * Commit every pending write and stop the background writer thread
+	 */
+	public void disableWriteBehind() {
+		WriteBehindQueue writeQueue;
+		synchronized (this) {
+			writeQueue = mWriteQueue;
+			mWriteQueue = null;
+		}
+		
+		if (writeQueue instanceof WriteBehindQueue) {
+			writeQueue.stop();
+		}
+	}
+	
+	/**
+	 * @return	Are the Async methods available?
+	 */
+	public synchronized boolean isWriteBehindEnabled() {
+		return mWriteQueue instanceof WriteBehindQueue;
+	}
+	
+	/**
+	 * Block until every write queued before the call has been committed or has failed,
+	 * returns immediately when write-behind is not enabled
+	 */
+	public void flush() throws InterruptedException {
+		WriteBehindQueue writeQueue;
+		synchronized (this) {
+			writeQueue = mWriteQueue;
+		}
+		
+		if (writeQueue instanceof WriteBehindQueue) {
+			writeQueue.flush();
+		}
 	}
 	
 	/**
-	 * Remove the current database and create a new one
+	 * Queue a model to be inserted by the background writer, the model must not be 
+	 * changed until the handle is done
+	 * @param	tableName	The table to insert the model into
+	 * @param	model	The model to insert
+	 * @return	A handle that completes once the insert is committed
+	 */
+	public WriteHandle insertValueAsync(String tableName, BaseModel model) {
+		// ensure that the tableName and model match
+		if (!tableName.equals(model.getTableName())) {
+			throw new IllegalArgumentException("The tableName must match model.TABLE_NAME");
+		}
+		
+		return getWriteQueue().enqueue(new WriteHandle(model));
+	}
+	
+	/**
+	 * Queue an UPDATE or DELETE query built by a QueryBuilder for the background writer
+	 * @param	query	The query to execute
+	 * @return	A handle that completes once the query is committed
+	 */
+	public WriteHandle executeQueryAsync(QueryBuilder query) {
+		if (query.getType() == QueryBuilder.TYPE_SELECT) {
+			throw new IllegalArgumentException("Use select() to run a SELECT query");
+		}
+		
+		return executeQueryAsync(query.toSql(), query.getArguments());
+	}
+	
+	/**
+	 * Queue a SQL query with ? placeholders for the background writer
+	 * @param	query	The query to execute
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 * @return	A handle that completes once the query is committed
+	 */
+	public WriteHandle executeQueryAsync(String query, Object[] arguments) {
+		return getWriteQueue().enqueue(new WriteHandle(query, arguments));
+	}
+	
+	/**
+	 * Queue a delete of the rows where the column is equal to the provided value
+	 * @param	tableName	The table name to delete the rows from
+	 * @param	columnName	Column name for the condition
+	 * @param	value	The value to match
+	 * @return	A handle that completes once the delete is committed
+	 */
+	public WriteHandle deleteWhereAsync(String tableName, String columnName, String value) {
+		return executeQueryAsync(QueryBuilder.delete(tableName).whereEquals(columnName, value));
+	}
+	
+	/**
+	 * Remove the current database and create a new one, migrate() upgrades an
+	 * existing database without losing its rows
 	 */
 	public void createDatabase() {
 		Database database = null;
 		try {
-			if (DatabaseHelper.databaseExists(mDatabaseFileRoot)) {
-				DatabaseHelper.deleteDatabase(mDatabaseFileRoot);
+			mConnection.invalidate();
+			mResultCache.clear();
+			if (DatabaseHelper.databaseExists(mBackend, mDatabaseFileRoot)) {
+				DatabaseHelper.deleteDatabase(mBackend, mDatabaseFileRoot);
 			}
 			
-			database =  DatabaseHelper.openOrCreate(mDatabaseFileRoot);	
+			database =  DatabaseHelper.openOrCreate(mBackend, mDatabaseFileRoot);	
 		} finally {
 			DatabaseHelper.closeDatabase(database);
 		}
 	}
 	
+	/**
+	 * Create the database if it does not exist, bring its schema up to date and keep
+	 * the handle open between calls
+	 * @param	migrations	The steps of the schema
+	 * @return	Was the database opened and migrated successfully?
+	 * @see	#migrate(Migration[])
+	 */
+	public boolean open(Migration[] migrations) {
+		if (!databaseExists()) {
+			DatabaseHelper.closeDatabase(DatabaseHelper.openOrCreate(mBackend, mDatabaseFileRoot));
+		}
+		
+		return open() && migrate(migrations);
+	}
+	
+	/**
+	 * Upgrade the schema by running the steps the database has not run yet. The schema 
+	 * version is stored in PRAGMA user_version, the step at index i upgrades version i
+	 * to version i + 1 and each step is committed in its own transaction together with
+	 * the new version. A step that fails is rolled back and the steps after it are not
+	 * run, the steps already committed are kept. A database that is already current
+	 * costs a single read of the version
+	 * @param	migrations	The steps of the schema, the length is the current version
+	 * @return	Is the schema at the current version?
+	 */
+	public boolean migrate(Migration[] migrations) {
+		boolean migrated = false;
+		
+		Database database = null;
+		boolean inTransaction = false;
+		boolean schemaChanged = false;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			int version = readSchemaVersion(database);
+			if (version > migrations.length) {
+				System.out.println("The schema version " + version + " is newer than the migrations");
+			} else {
+				for (int i = version; i < migrations.length; i++) {
+					mConnection.begin(database);
+					inTransaction = true;
+					schemaChanged = true;
+					migrations[i].migrate(new SchemaTransaction(this, database, i));
+					executeStatement(database, "PRAGMA user_version = " + (i + 1), null);
+					commitTransaction(database);
+					inTransaction = false;
+				}
+				
+				migrated = true;
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Migration failed: " + e.getMessage());
+		} finally {
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			if (schemaChanged) {
+				mConnection.schemaChanged();
+				mResultCache.clear();
+			}
+		}
+		
+		return migrated;
+	}
+	
+	/**
+	 * @return	The schema version stored in PRAGMA user_version or -1 if it cannot be read
+	 */
+	public int getSchemaVersion() {
+		int version = -1;
+		
+		Database database = null;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			version = readSchemaVersion(database);
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Query failed: " + e.getMessage());
+		} finally {
+			mConnection.release(database, error);
+		}
+		
+		return version;
+	}
+	
 	/**
 	 * @return	The database file exists
 	 */
 	public boolean databaseExists() {
-		return DatabaseHelper.databaseExists(mDatabaseFileRoot);
+		return DatabaseHelper.databaseExists(mBackend, mDatabaseFileRoot);
 	}
 	
 	/**
 	 * Delete the SQLite database
 	 */
 	public void destroyData() {
-		DatabaseHelper.deleteDatabase(mDatabaseFileRoot);
+		mConnection.invalidate();
+		mResultCache.clear();
+		DatabaseHelper.deleteDatabase(mBackend, mDatabaseFileRoot);
 	}
 	
 	/**
-	 * Execute a create schema query
-	 * @param	resourceLocation	The location of the SQL query schema
-	 * @return	Did the query execute successfully?
+	 * Execute a create schema script
+	 * @param	resourceLocation	The location of the SQL schema script
+	 * @return	Did every statement of the script execute successfully?
+	 * @see	#executeSchemaScript(InputStream)
 	 */
 	public boolean executeCreateSchemaQuery(String resourceLocation) {
-		boolean queryExecuted = false;
 		InputStream inputStream = getClass().getResourceAsStream(resourceLocation);
-		String schemaQuery = ResourceHelper.getFileContents(inputStream);
+		if (!(inputStream instanceof InputStream)) {
+			System.out.println("Schema script not found: " + resourceLocation);
+			return false;
+		}
 		
-		Database database = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-			queryExecuted = DatabaseHelper.executeWriteQuery(schemaQuery, database);
+			return executeSchemaScript(inputStream);
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			ResourceHelper.closeInputStream(inputStream);
+		}
+	}
+	
+	/**
+	 * Begin a transaction that every provider call made by this thread takes part in
+	 * until it is committed or rolled back, so a mix of reads and writes is committed
+	 * together with a single sync to storage. Inside an open transaction this begins
+	 * a nested one as a SAVEPOINT. The writes of other threads wait until the
+	 * outermost transaction ends
+	 * @return	The transaction, always end it in a finally block with close()
+	 * @throws	DatabaseException	The database could not be opened or the transaction
+	 * could not be started
+	 * @see	Transaction
+	 */
+	public Transaction beginTransaction() throws DatabaseException {
+		Database database = mConnection.acquire();
+		if (!(database instanceof Database)) {
+			throw new DatabaseException("The database could not be opened");
+		}
+		
+		try {
+			mConnection.begin(database);
+			return new Transaction(this, mConnection, database, mConnection.getTransactionLevel());
+		} catch (DatabaseException e) {
+			mConnection.release(database, e);
+			throw e;
 		}
+	}
+	
+	/**
+	 * Called when the outermost transaction of a thread ends. Rows read by other
+	 * threads while it was open may have been cached after its writes dropped them
+	 */
+	void transactionEnded() {
+		mResultCache.clear();
+	}
+	
+	/**
+	 * Execute a script of ; separated statements on one handle inside one transaction, 
+	 * the script is split into statements as it is read so it is never held in memory
+	 * as a whole. If a statement fails the whole script is rolled back. Statements 
+	 * that SQLite does not allow inside a transaction, such as VACUUM or a PRAGMA that 
+	 * changes the journal mode, cannot be part of a script
+	 * @param	inputStream	The script, the caller closes it
+	 * @return	Did every statement of the script execute successfully?
+	 * @see	SchemaScriptReader
+	 */
+	public boolean executeSchemaScript(InputStream inputStream) {
+		boolean queryExecuted = false;
 		
-		ResourceHelper.closeInputStream(inputStream);
+		Database database = null;
+		boolean inTransaction = false;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			mConnection.begin(database);
+			inTransaction = true;
+			executeScript(database, inputStream);
+			commitTransaction(database);
+			inTransaction = false;
+			queryExecuted = true;
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Schema script failed: " + e.getMessage());
+		} finally {
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			mConnection.schemaChanged();
+			mResultCache.clear();
+		}
 		
 		return queryExecuted;
 	}
@@ -85,20 +533,43 @@ public final class SQLProvider {
 	 * @return	Did the query run successfully?
 	 */
 	public boolean executeQuery(String query) {
+		return executeQuery(query, null);
+	}
+	
+	/**
+	 * Execute an UPDATE or DELETE query built by a QueryBuilder
+	 * @param	query	The query to execute
+	 * @return	Did the query run successfully?
+	 */
+	public boolean executeQuery(QueryBuilder query) {
+		if (query.getType() == QueryBuilder.TYPE_SELECT) {
+			throw new IllegalArgumentException("Use select() to run a SELECT query");
+		}
+		
+		return executeQuery(query.toSql(), query.getArguments());
+	}
+	
+	/**
+	 * Execute a SQL query with ? placeholders
+	 * @param	query	The query to execute
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 * @return	Did the query run successfully?
+	 */
+	public boolean executeQuery(String query, Object[] arguments) {
 		boolean queryExecuted = false;
 		
 		Database database = null;
+		Exception error = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-	        Statement statement = database.createStatement(query);  
-	        statement.prepare();      
-	        statement.execute(); 
-	        statement.close(); 
+			database = mConnection.acquire();
+			executeStatement(database, query, arguments);
 	        queryExecuted = true;
 		} catch (Exception e) {
+			error = e;
 			System.out.println("Query failed: " + e.getMessage());
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			mConnection.release(database, error);
+			invalidateResults(query);
 		}
 		
 		return queryExecuted;
@@ -113,27 +584,40 @@ public final class SQLProvider {
 		boolean queryExecuted = false;
 		
 		Database database = null;
+		boolean inTransaction = false;
+		Exception error = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
+			database = mConnection.acquire();
 			// run the queries in the same transaction
-			database.beginTransaction();
+			mConnection.begin(database);
+			inTransaction = true;
 			for (int i = 0; i < queryList.length; i++) {
 				String query = queryList[i];
 				if (query instanceof String) {
-			        Statement statement = database.createStatement(query);  
-			        statement.prepare();      
-			        statement.execute(); 
-			        statement.close(); 
+					executeStatement(database, query, null);
 				}
 			}
 			
 			// end the transaction
-			database.commitTransaction();
+			commitTransaction(database);
+			inTransaction = false;
 			queryExecuted = true;
 		} catch (Exception e) {
+			error = e;
 			System.out.println("Query failed: " + e.getMessage());
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			// a shared handle must not be left inside a failed transaction
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			for (int i = 0; i < queryList.length; i++) {
+				if (queryList[i] instanceof String) {
+					invalidateResults(queryList[i]);
+				}
+			}
 		}
 		
 		return queryExecuted;
@@ -154,66 +638,36 @@ public final class SQLProvider {
 		}
 		
 		Database database = null;
+		Exception error = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-			// build a SQL INSERT query string
-			String insertQuery = DatabaseHelper.buildInsertQuery(tableName,  model.getFields());
-	        Statement statement = database.createStatement(insertQuery);
-	        statement.prepare();
-	        
-	        // loop through all values and bind them to the statement, the first field 
-	        // is ignored since we assume it is the primary key
-	        Hashtable fieldHashTable = model.getFields();
-	        int i = 1;
-	        Enumeration keys = fieldHashTable.keys();
-	        while(keys.hasMoreElements()) {
-	        	String key = (String)keys.nextElement();
-	            
-	            DatabaseField field = (DatabaseField)fieldHashTable.get(key);
-	            
-	            if (field.getType() == BaseModel.TYPE_STRING) {
-	            	if (field.getValue() instanceof String) {
-	            		statement.bind(i, (String)field.getValue());
-	            	} else {
-	            		statement.bind(i, (String)null);
-	            	}
-	            	
-	            	i++;
-	            } else if (field.getType() == BaseModel.TYPE_LONG) {
-	            	if (field.getValue() instanceof Long) {
-	            		statement.bind(i, ((Long)field.getValue()).longValue());
-	            	} else {
-	            		statement.bind(i, -1);
-	            	}
-	            	
-	            	i++;
-	            } else if (field.getType() == BaseModel.TYPE_INTEGER) {
-	            	if (field.getValue() instanceof Integer) {
-	            		statement.bind(i, ((Integer)field.getValue()).intValue());
-	            	} else {
-	            		statement.bind(i, -1);
-	            	}
-	            	
-	            	i++;
-	            }
-	        }
-	        
-	        statement.execute(); 
-	        statement.close(); 
-	        
-	        // get the row that was just inserted
-	        lastWriteRowId = DatabaseHelper.getLastWriteRowId(database);
+			database = mConnection.acquire();
+			lastWriteRowId = executeInsert(database, model);
 		} catch (Exception e) {
+			error = e;
 			System.out.println("Insert failed: " + e.getMessage());
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
 		}
-        
+
         return lastWriteRowId;
 	}
 	
 	/**
-	 * Delete a value from the provided table
+	 * Delete the rows where the column is equal to the provided value, the value is
+	 * bound rather than written into the query
+	 * @param	tableName	The table name to delete the rows from
+	 * @param	columnName	Column name for the condition
+	 * @param	value	The value to match
+	 * @return	Did the query run successfully?
+	 */
+	public boolean deleteWhere(String tableName, String columnName, String value) {
+		return executeQuery(QueryBuilder.delete(tableName).whereEquals(columnName, value));
+	}
+	
+	/**
+	 * Delete a value from the provided table, the condition is written into the
+	 * query as SQL so it must be escaped by the caller, deleteWhere binds the value
 	 * @param	tableName	The table name to delete the row from
 	 * @param	columnName	Column name for the condition
 	 * @param	condition	Condition for the delete
@@ -221,155 +675,1959 @@ public final class SQLProvider {
 	 */
 	public boolean deleteValue(String tableName, String columnName, String condition) {
 		boolean queryExecuted = false;
-	
+		
 		String deleteQuery = "DELETE FROM " + tableName + " WHERE " + columnName + " = " + condition;
 		
 		Database database = null;
+		Exception error = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-			Statement statement = database.createStatement(deleteQuery);
-			statement.prepare();
-			statement.execute();
-			statement.close();
+			database = mConnection.acquire();
+			executeStatement(database, deleteQuery, null);
 			queryExecuted = true;
 		} catch (Exception e) {
+			error = e;
 			System.out.println(e.getMessage());
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
 		}
 		
 		return queryExecuted;
 	}
 	
 	/**
-	 * Insert a  collection of models into the provided SQL table, the model data must match
-	 * the schema of the tableName
-	 * @param	tableName	The table to insert the model into
-	 * @param	model	The model to insert
+	 * Delete the rows whose column matches one of the keys using the default chunk size
+	 * @see	#deleteKeys(String, String, long[], int)
 	 */
-	public boolean insertMultipleValues(String tableName, BaseModel[] model) {
-		for (int i = 0; i < model.length; i++) {
-			long rowID = this.insertValue(tableName, model[i]);
-			if (rowID == -1) {
-				return false;
-			}
-		}
-		
-		return true;
+	public int deleteKeys(String tableName, String columnName, long[] keys) {
+		return deleteKeys(tableName, columnName, keys, DEFAULT_BULK_CHUNK_SIZE);
 	}
 	
 	/**
-	 * Select all values from the SQL table as rows
-	 * @param	tableName	The table to select all values from
-	 * @param	columnOrderBy	The column to order the results by
-	 * @param	direction	The direction of the query
-	 * @return	A Vector of rows
+	 * Delete the rows whose column matches one of the keys. The keys are bound to
+	 * DELETE ... IN (?, ...) statements of chunkSize keys which all run in one 
+	 * transaction on one handle, so either every chunk is deleted or none is
+	 * @param	tableName	The table to delete the rows from
+	 * @param	columnName	The column matched against the keys, usually the primary key
+	 * @param	keys	The keys of the rows to delete
+	 * @param	chunkSize	The number of keys bound to each statement, at most MAX_BOUND_VARIABLES
+	 * @return	The number of rows deleted or -1 if the delete failed
 	 */
-	public Vector selectAll(String tableName, String columnOrderBy, String direction) {
-		Vector results = new Vector();
-		
-		Database database = null;
-		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-			String selectAllQuery = null;
-			if (columnOrderBy instanceof String && direction instanceof String) {
-				selectAllQuery = DatabaseHelper.buildSelectAllQuery(tableName) +
-					" ORDER BY " + columnOrderBy + " " + direction;
-			} else {
-				selectAllQuery = DatabaseHelper.buildSelectAllQuery(tableName);
-			}
-			
-			Statement statement = database.createStatement(selectAllQuery); 
-			statement.prepare();
-			Cursor cursor = statement.getCursor();   
-			
-	        while(cursor.next()) {
-	            Row row = cursor.getRow();  
-	        	results.addElement(row);
-	        }        
-	        
-	        cursor.close();
-	        statement.close();
-		} catch (Exception e) {
-			System.out.println("Select failed: " + e.getMessage());
-		} finally {
-			DatabaseHelper.closeDatabase(database);
-		}
-		
-		return results;
+	public int deleteKeys(String tableName, String columnName, long[] keys, int chunkSize) {
+		return deleteKeys(tableName, columnName, keys, null, keys.length, chunkSize);
 	}
 	
 	/**
-	 * An override of selectAllOrderBy that only contains a table
-	 * @param	table	The table to select all data from
-	 * @return	A vector of database rows returned by the query
+	 * Delete the rows whose column matches one of the keys using the default chunk size
+	 * @see	#deleteKeys(String, String, String[], int)
 	 */
-	public Vector selectAll(String table) {
-		return selectAll(table, null, null);
+	public int deleteKeys(String tableName, String columnName, String[] keys) {
+		return deleteKeys(tableName, columnName, keys, DEFAULT_BULK_CHUNK_SIZE);
 	}
 	
 	/**
-	 * Select a values from the SQL table as rows that match the provided where column and value
-	 * @param	tableName	The table to select the values from
-	 * @param	whereColumn	The where condition column
+	 * @see	#deleteKeys(String, String, long[], int)
+	 */
+	public int deleteKeys(String tableName, String columnName, String[] keys, int chunkSize) {
+		return deleteKeys(tableName, columnName, null, keys, keys.length, chunkSize);
+	}
+	
+	/**
+	 * Delete the rows where the column is less than the value in one statement, such 
+	 * as the rows older than a retention period
+	 * @param	tableName	The table to delete the rows from
+	 * @param	columnName	The column compared to the value
+	 * @param	value	The bound, rows equal to it are kept
+	 * @return	The number of rows deleted or -1 if the delete failed
+	 */
+	public int deleteBefore(String tableName, String columnName, long value) {
+		return deleteBefore(tableName, columnName, new Long(value));
+	}
+	
+	/**
+	 * @param	value	The bound, a String, Long, Integer or Double
+	 * @see	#deleteBefore(String, String, long)
+	 */
+	public int deleteBefore(String tableName, String columnName, Object value) {
+		int deleted = -1;
+		
+		String deleteQuery = "DELETE FROM " + tableName + " WHERE " + columnName + " < ?";
+		
+		Database database = null;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			executeStatement(database, deleteQuery, new Object[] { value });
+			deleted = readInteger(database, "SELECT changes()");
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Delete failed: " + e.getMessage());
+		} finally {
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
+		}
+		
+		return deleted;
+	}
+	
+	/**
+	 * Insert a  collection of models into the provided SQL table in a single transaction, 
+	 * the model data must match the schema of the tableName
+	 * @param	tableName	The table to insert the model into
+	 * @param	model	The models to insert
+	 * @return	Were all of the models inserted? Nothing is inserted if one model fails
+	 */
+	public boolean insertMultipleValues(String tableName, BaseModel[] model) {
+		long[] rowIds = insertValues(tableName, model, model.length);
+		for (int i = 0; i < rowIds.length; i++) {
+			if (rowIds[i] == -1) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Insert a collection of models using the default chunk size
+	 * @see	#insertValues(String, BaseModel[], int)
+	 */
+	public long[] insertValues(String tableName, BaseModel[] models) {
+		return insertValues(tableName, models, DEFAULT_BULK_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Bulk insert a collection of models into the provided SQL table. The database is
+	 * opened once, the INSERT statement is prepared once for each table shape and the
+	 * rows are committed in transactions of chunkSize rows. If a row fails the chunk it 
+	 * belongs to is rolled back and no further rows are inserted, chunks that were
+	 * already committed are kept
+	 * @param	tableName	The table to insert the models into
+	 * @param	models	The models to insert, each must belong to tableName
+	 * @param	chunkSize	The number of rows to commit in each transaction
+	 * @return	The row id of each model in the order provided, -1 for every model 
+	 * that was not inserted
+	 */
+	public long[] insertValues(String tableName, BaseModel[] models, int chunkSize) {
+		long[] rowIds = new long[models.length];
+		for (int i = 0; i < models.length; i++) {
+			// ensure that the tableName and models match before anything is written
+			if (!tableName.equals(models[i].getTableName())) {
+				throw new IllegalArgumentException("The tableName must match model.TABLE_NAME");
+			}
+			
+			rowIds[i] = -1;
+		}
+		
+		if (models.length == 0) {
+			return rowIds;
+		}
+		
+		if (chunkSize < 1) {
+			chunkSize = 1;
+		}
+		
+		Database database = null;
+		Statement statement = null;
+		ModelMetadata statementMetadata = null;
+		boolean inTransaction = false;
+		int chunkStart = 0;
+		String insertQuery = null;
+		long rowStart = -1;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			for (int i = 0; i < models.length; i++) {
+				if (!inTransaction) {
+					mConnection.begin(database);
+					inTransaction = true;
+					chunkStart = i;
+				}
+				
+				// models of the same class share one prepared statement
+				rowStart = mConnection.startTimer();
+				ModelMetadata metadata = models[i].getMetadata();
+				insertQuery = metadata.getInsertQuery();
+				if (metadata != statementMetadata) {
+					mConnection.finish(statement, null);
+					statement = null;
+					statement = mConnection.prepare(database, insertQuery);
+					statementMetadata = metadata;
+				} else {
+					statement.reset();
+				}
+				
+				executeModel(statement, models[i], insertQuery);
+				rowIds[i] = DatabaseHelper.getLastWriteRowId(database);
+				mConnection.reportStatement(insertQuery, 1, mConnection.elapsed(rowStart), true);
+				
+				if (i - chunkStart + 1 == chunkSize || i == models.length - 1) {
+					commitTransaction(database);
+					inTransaction = false;
+				}
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Insert failed: " + e.getMessage());
+			if (insertQuery instanceof String) {
+				mConnection.reportStatement(insertQuery, -1, mConnection.elapsed(rowStart), false);
+			}
+		} finally {
+			mConnection.finish(statement, error);
+			if (inTransaction) {
+				// the rows of the open chunk were never committed
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+				
+				for (int i = chunkStart; i < rowIds.length; i++) {
+					rowIds[i] = -1;
+				}
+			}
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
+		}
+		
+		return rowIds;
+	}
+	
+	/**
+	 * Write the columns of a model that changed since it was loaded or last written
+	 * to its row, the other columns are left as they are. The model is marked clean
+	 * once the row is written
+	 * @param	model	The model to write, its primary key must be set
+	 * @return	Was the row found and written? A model without changes is not written
+	 * and returns true
+	 */
+	public boolean update(BaseModel model) {
+		int primaryKey = model.getMetadata().getPrimaryKeyIndex();
+		if (primaryKey == -1 || model.isNull(primaryKey)) {
+			throw new IllegalArgumentException("The model must have a primary key value");
+		}
+		
+		int[] columns = getDirtyColumns(model);
+		if (columns.length == 0) {
+			return true;
+		}
+		
+		boolean updated = false;
+		
+		Database database = null;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			updated = executeUpdate(database, model, columns) > 0;
+			if (updated) {
+				model.markClean();
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Update failed: " + e.getMessage());
+		} finally {
+			mConnection.release(database, error);
+			mResultCache.invalidate(model.getTableName());
+		}
+		
+		return updated;
+	}
+	
+	/**
+	 * Write a blob from a stream using the default chunk size
+	 * @see	#writeBlob(String, String, long, InputStream, int)
+	 */
+	public boolean writeBlob(String tableName, String columnName, long rowId, InputStream inputStream) {
+		return writeBlob(tableName, columnName, rowId, inputStream, DEFAULT_BLOB_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Replace the blob of a row with the contents of a stream without holding the
+	 * whole stream in memory. The stream is read chunkSize bytes at a time and each
+	 * chunk is inserted as a row of a TEMP table, then the chunks are joined into 
+	 * the column with one UPDATE, all in one transaction so a failure keeps the old 
+	 * value. The backends have no incremental blob I/O, so each byte is written twice
+	 * rather than the value being rewritten on every chunk, and SQLite holds the 
+	 * whole value once while the UPDATE runs. The chunks are joined as text, so the 
+	 * database must use the default UTF-8 encoding
+	 * @param	tableName	The table of the row
+	 * @param	columnName	The blob column
+	 * @param	rowId	The rowid of the row, the primary key of a model
+	 * @param	inputStream	The new value, the caller closes it
+	 * @param	chunkSize	The number of bytes read and stored at a time
+	 * @return	Was the row found and the whole stream written?
+	 */
+	public boolean writeBlob(String tableName, String columnName, long rowId, InputStream inputStream, int chunkSize) {
+		boolean written = false;
+		
+		Long key = new Long(rowId);
+		byte[] buffer = new byte[Math.max(chunkSize, 1)];
+		
+		Database database = null;
+		boolean inTransaction = false;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			mConnection.begin(database);
+			inTransaction = true;
+			executeStatement(database, "CREATE TEMP TABLE IF NOT EXISTS " + BLOB_CHUNK_TABLE + 
+					" (seq INTEGER PRIMARY KEY, chunk BLOB)", null);
+			executeStatement(database, "DELETE FROM " + BLOB_CHUNK_TABLE, null);
+			
+			String chunkQuery = "INSERT INTO " + BLOB_CHUNK_TABLE + " (seq, chunk) VALUES (?, ?)";
+			int length;
+			long seq = 0;
+			while ((length = readChunk(inputStream, buffer)) > 0) {
+				byte[] chunk = buffer;
+				if (length < buffer.length) {
+					chunk = new byte[length];
+					System.arraycopy(buffer, 0, chunk, 0, length);
+				}
+				executeStatement(database, chunkQuery, new Object[] { new Long(seq++), chunk });
+			}
+			
+			executeStatement(database, "UPDATE " + tableName + " SET " + columnName + " = CAST(coalesce((" + 
+					"SELECT group_concat(chunk, '') FROM (SELECT chunk FROM " + BLOB_CHUNK_TABLE + 
+					" ORDER BY seq)), X'') AS BLOB) WHERE rowid = ?", new Object[] { key });
+			if (readInteger(database, "SELECT changes()") == 1) {
+				executeStatement(database, "DELETE FROM " + BLOB_CHUNK_TABLE, null);
+				commitTransaction(database);
+				inTransaction = false;
+				written = true;
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Blob write failed: " + e.getMessage());
+		} finally {
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
+		}
+		
+		return written;
+	}
+	
+	/**
+	 * Open a blob for reading using the default chunk size
+	 * @see	#openBlob(String, String, long, int)
+	 */
+	public InputStream openBlob(String tableName, String columnName, long rowId) {
+		return openBlob(tableName, columnName, rowId, DEFAULT_BLOB_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Open a stream over the blob of a row, the blob is read with substr() chunkSize
+	 * bytes at a time as the stream is read so only one chunk is held in memory. 
+	 * No handle is held between chunks, a write to the row while it is read can
+	 * mix the old and new values
+	 * @param	tableName	The table of the row
+	 * @param	columnName	The blob column
+	 * @param	rowId	The rowid of the row, the primary key of a model
+	 * @param	chunkSize	The number of bytes read at a time
+	 * @return	A stream over the blob or null if the row was not found, the value is 
+	 * null or the query failed
+	 */
+	public InputStream openBlob(String tableName, String columnName, long rowId, int chunkSize) {
+		String lengthQuery = "SELECT length(" + columnName + ") FROM " + tableName + " WHERE rowid = ? AND " + 
+				columnName + " IS NOT NULL";
+		String chunkQuery = "SELECT substr(" + columnName + ", ?, ?) FROM " + tableName + " WHERE rowid = ?";
+		
+		long length = -1;
+		
+		Database database = null;
+		Statement statement = null;
+		Cursor cursor = null;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			statement = mConnection.prepare(database, lengthQuery);
+			statement.bind(1, rowId);
+			cursor = statement.getCursor();
+			if (cursor.next()) {
+				length = cursor.getRow().getLong(0);
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Blob read failed: " + e.getMessage());
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+			mConnection.release(database, error);
+		}
+		
+		if (length == -1) {
+			return null;
+		}
+		
+		return new BlobInputStream(this, chunkQuery, rowId, (int)length, Math.max(chunkSize, 1));
+	}
+	
+	/**
+	 * Read one chunk of a blob for a BlobInputStream
+	 * @param	chunkQuery	The substr() query of the stream
+	 * @param	offset	The offset of the chunk from 0
+	 * @param	length	The number of bytes to read
+	 * @return	The bytes read, fewer than length when the blob was shortened
+	 * @throws	IOException	The row was deleted or the query failed
+	 */
+	byte[] readBlobChunk(String chunkQuery, long rowId, int offset, int length) throws IOException {
+		Database database = null;
+		Statement statement = null;
+		Cursor cursor = null;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			statement = mConnection.prepare(database, chunkQuery);
+			// substr() counts from 1
+			statement.bind(1, offset + 1);
+			statement.bind(2, length);
+			statement.bind(3, rowId);
+			cursor = statement.getCursor();
+			if (!cursor.next()) {
+				throw new IOException("The row of the blob was deleted");
+			}
+			
+			byte[] chunk = cursor.getRow().getBlobBytes(0);
+			return chunk instanceof byte[] ? chunk : new byte[0];
+		} catch (IOException e) {
+			error = e;
+			throw e;
+		} catch (Exception e) {
+			error = e;
+			throw new IOException("Blob read failed: " + e.getMessage());
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+			mConnection.release(database, error);
+		}
+	}
+	
+	/**
+	 * Import a seed file bundled as a resource using the default chunk size
+	 * @param	tableName	The table to insert the rows into
+	 * @param	resourceLocation	The location of the seed file in the application resources
+	 * @param	callback	Receives the progress after each chunk or null
+	 * @return	The number of rows imported or -1 if the resource is missing or the import failed
+	 * @see	#importSeed(String, InputStream, int, ImportCallback)
+	 */
+	public int importSeedResource(String tableName, String resourceLocation, ImportCallback callback) {
+		InputStream inputStream = getClass().getResourceAsStream(resourceLocation);
+		if (!(inputStream instanceof InputStream)) {
+			System.out.println("Seed file not found: " + resourceLocation);
+			return -1;
+		}
+		
+		try {
+			return importSeed(tableName, inputStream, DEFAULT_BULK_CHUNK_SIZE, callback);
+		} finally {
+			ResourceHelper.closeInputStream(inputStream);
+		}
+	}
+	
+	/**
+	 * Stream the rows of a seed file written by SeedFileWriter into a table, the rows
+	 * are committed in transactions of chunkSize rows
+	 * @param	tableName	The table to insert the rows into, it must have the columns of the file
+	 * @param	inputStream	The seed file, the caller closes it
+	 * @param	chunkSize	The number of rows to commit in each transaction
+	 * @param	callback	Receives the progress after each chunk or null
+	 * @return	The number of rows imported or -1 if the import failed
+	 * @see	#importSeed(String, InputStream, int, boolean, ImportCallback)
+	 */
+	public int importSeed(String tableName, InputStream inputStream, int chunkSize, ImportCallback callback) {
+		return importSeed(tableName, inputStream, chunkSize, false, callback);
+	}
+	
+	/**
+	 * Stream the rows of a seed file written by SeedFileWriter into a table. The 
+	 * file is read through a fixed size buffer and each row is bound straight to one
+	 * prepared INSERT, so the memory used does not grow with the file. The rows are 
+	 * committed in transactions of chunkSize rows, so the journal never holds more 
+	 * than one chunk. If a row fails the open chunk is rolled back and the chunks 
+	 * already committed are kept, their row count is passed to onFailure() of the 
+	 * callback. An atomic import is one transaction instead, a failure leaves the 
+	 * table as it was but the journal grows with the whole file
+	 * @param	tableName	The table to insert the rows into, it must have the columns of the file
+	 * @param	inputStream	The seed file, the caller closes it
+	 * @param	chunkSize	The number of rows to commit in each transaction, or between 
+	 * progress reports of an atomic import
+	 * @param	atomic	Import every row in one transaction?
+	 * @param	callback	Receives the progress after each chunk or null
+	 * @return	The number of rows imported or -1 if the import failed
+	 * @see	SeedFileReader
+	 */
+	public int importSeed(String tableName, InputStream inputStream, int chunkSize, boolean atomic, 
+			ImportCallback callback) {
+		if (chunkSize < 1) {
+			chunkSize = 1;
+		}
+		
+		// the rows written so far and the rows of those that are committed
+		int rowCount = 0;
+		int committedCount = 0;
+		
+		Database database = null;
+		Statement statement = null;
+		boolean inTransaction = false;
+		String insertQuery = null;
+		long start = -1;
+		Exception error = null;
+		try {
+			SeedFileReader reader = new SeedFileReader(inputStream);
+			insertQuery = DatabaseHelper.buildInsertQuery(tableName, reader.getColumns());
+			
+			database = mConnection.acquire();
+			start = mConnection.startTimer();
+			statement = mConnection.prepare(database, insertQuery);
+			int chunkCount = 0;
+			boolean hasRow = reader.bindRow(statement);
+			while (hasRow) {
+				if (!inTransaction) {
+					mConnection.begin(database);
+					inTransaction = true;
+				}
+				
+				statement.execute();
+				statement.reset();
+				chunkCount++;
+				hasRow = reader.bindRow(statement);
+				
+				if (chunkCount == chunkSize || !hasRow) {
+					if (!atomic || !hasRow) {
+						commitTransaction(database);
+						inTransaction = false;
+					}
+					
+					rowCount += chunkCount;
+					chunkCount = 0;
+					if (!inTransaction) {
+						committedCount = rowCount;
+					}
+					
+					if (callback instanceof ImportCallback) {
+						callback.onProgress(tableName, rowCount);
+					}
+				}
+			}
+		} catch (Exception e) {
+			error = e;
+			rowCount = -1;
+			System.out.println("Import failed: " + e.getMessage() + ", " + committedCount + " rows were committed");
+		} finally {
+			mConnection.finish(statement, error);
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
+			if (insertQuery instanceof String && start != -1) {
+				mConnection.reportStatement(insertQuery, rowCount, mConnection.elapsed(start), !(error instanceof Exception));
+			}
+		}
+		
+		if (error instanceof Exception && callback instanceof ImportCallback) {
+			callback.onFailure(tableName, committedCount);
+		}
+		
+		return rowCount;
+	}
+	
+	/**
+	 * Update the row of a model or insert it when the row does not exist
+	 * @param	model	The model to write
+	 * @return	Was the model written?
+	 * @see	#upsertValues(BaseModel[])
+	 */
+	public boolean upsert(BaseModel model) {
+		return upsertValues(new BaseModel[] { model });
+	}
+	
+	/**
+	 * Update or insert a collection of models in one transaction. A model without a
+	 * primary key value is inserted and given its new key. A model with a key has its 
+	 * dirty columns written to its row, and is inserted whole with that key when the
+	 * row does not exist. SQLite on the device has no INSERT ... ON CONFLICT DO UPDATE
+	 * and INSERT OR REPLACE would rewrite every column, so the UPDATE runs first and 
+	 * the INSERT only runs when SELECT changes() reports that no row matched. A model
+	 * without dirty columns is only inserted when its row does not exist, and a
+	 * constraint the INSERT breaks fails the upsert rather than being ignored. The 
+	 * models are marked clean once the transaction is committed, if a model fails 
+	 * nothing is written
+	 * @param	models	The models to write, they may belong to different tables
+	 * @return	Were all of the models written?
+	 */
+	public boolean upsertValues(BaseModel[] models) {
+		boolean written = false;
+		// the models given a new key, which is taken back if the transaction fails
+		boolean[] generatedKeys = new boolean[models.length];
+		
+		Database database = null;
+		boolean inTransaction = false;
+		Exception error = null;
+		try {
+			database = mConnection.acquire();
+			mConnection.begin(database);
+			inTransaction = true;
+			for (int i = 0; i < models.length; i++) {
+				int primaryKey = models[i].getMetadata().getPrimaryKeyIndex();
+				generatedKeys[i] = primaryKey != -1 && models[i].isNull(primaryKey);
+				executeUpsert(database, models[i]);
+			}
+			
+			commitTransaction(database);
+			inTransaction = false;
+			written = true;
+			for (int i = 0; i < models.length; i++) {
+				models[i].markClean();
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Upsert failed: " + e.getMessage());
+		} finally {
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+				
+				for (int i = 0; i < models.length; i++) {
+					if (generatedKeys[i]) {
+						models[i].setNull(models[i].getMetadata().getPrimaryKeyIndex());
+					}
+				}
+			}
+			mConnection.release(database, error);
+			for (int i = 0; i < models.length; i++) {
+				mResultCache.invalidate(models[i].getTableName());
+			}
+		}
+		
+		return written;
+	}
+	
+	/**
+	 * Select all values from the SQL table as rows
+	 * @param	tableName	The table to select all values from
+	 * @param	columnOrderBy	The column to order the results by
+	 * @param	direction	The direction of the query
+	 * @return	A Vector of rows
+	 */
+	public Vector selectAll(String tableName, String columnOrderBy, String direction) {
+		return selectCached(tableName, DatabaseHelper.buildSelectAllQuery(tableName, columnOrderBy, direction), null);
+	}
+	
+	/**
+	 * An override of selectAllOrderBy that only contains a table
+	 * @param	table	The table to select all data from
+	 * @return	A vector of database rows returned by the query
+	 */
+	public Vector selectAll(String table) {
+		return selectAll(table, null, null);
+	}
+	
+	/**
+	 * Stream all values from the SQL table to the callback one row at a time
+	 * @param	tableName	The table to select all values from
+	 * @param	columnOrderBy	The column to order the results by or null
+	 * @param	direction	The direction of the query or null
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectAll(String tableName, String columnOrderBy, String direction, RowCallback callback) {
+		return selectQuery(DatabaseHelper.buildSelectAllQuery(tableName, columnOrderBy, direction), callback);
+	}
+	
+	/**
+	 * Select only the provided columns of every row, a Row then holds nothing else
+	 * @param	tableName	The table to select the values from
+	 * @param	columns	The columns to select or null for every column
+	 * @param	columnOrderBy	The column to order the results by or null
+	 * @param	direction	The direction of the query or null
+	 * @return	A vector of database rows returned by the query
+	 */
+	public Vector selectAll(String tableName, String[] columns, String columnOrderBy, String direction) {
+		return selectCached(tableName, DatabaseHelper.buildSelectQuery(tableName, columns, columnOrderBy, direction), null);
+	}
+	
+	/**
+	 * Stream the provided columns of every row to the callback one row at a time
+	 * @param	tableName	The table to select the values from
+	 * @param	columns	The columns to select or null for every column
+	 * @param	columnOrderBy	The column to order the results by or null
+	 * @param	direction	The direction of the query or null
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectAll(String tableName, String[] columns, String columnOrderBy, String direction, RowCallback callback) {
+		return selectQuery(DatabaseHelper.buildSelectQuery(tableName, columns, columnOrderBy, direction), callback);
+	}
+	
+	/**
+	 * Select a values from the SQL table as rows that match the provided where column and value
+	 * @param	tableName	The table to select the values from
+	 * @param	whereColumn	The where condition column
+	 * @param 	whereValue	The where condition value
+	 * @return	A Vector of rows
+	 */
+	public Vector selectWhere(String tableName, String whereColumn, String whereValue) {
+		return select(QueryBuilder.select(tableName).whereEquals(whereColumn, whereValue));
+	}
+	
+	/**
+	 * Stream the rows that match the provided where column and value to the callback
+	 * one row at a time
+	 * @param	tableName	The table to select the values from
+	 * @param	whereColumn	The where condition column
+	 * @param 	whereValue	The where condition value
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectWhere(String tableName, String whereColumn, String whereValue, RowCallback callback) {
+		return select(QueryBuilder.select(tableName).whereEquals(whereColumn, whereValue), callback);
+	}
+	
+	/**
+	 * Select only the provided columns of the rows that match the where column and value
+	 * @param	tableName	The table to select the values from
+	 * @param	columns	The columns to select or null for every column
+	 * @param	whereColumn	The where condition column
+	 * @param 	whereValue	The where condition value
+	 * @return	A Vector of rows
+	 */
+	public Vector selectWhere(String tableName, String[] columns, String whereColumn, String whereValue) {
+		return select(QueryBuilder.select(tableName, columns).whereEquals(whereColumn, whereValue));
+	}
+	
+	/**
+	 * Stream the provided columns of the rows that match the where column and value 
+	 * to the callback one row at a time
+	 * @param	tableName	The table to select the values from
+	 * @param	columns	The columns to select or null for every column
+	 * @param	whereColumn	The where condition column
+	 * @param 	whereValue	The where condition value
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectWhere(String tableName, String[] columns, String whereColumn, String whereValue, RowCallback callback) {
+		return select(QueryBuilder.select(tableName, columns).whereEquals(whereColumn, whereValue), callback);
+	}
+	
+	/**
+	 * Run a SELECT query built by a QueryBuilder and return the rows as a Vector
+	 * @param	query	The select query to execute
+	 * @return	A vector of rows associated with the provided query
+	 */
+	public Vector select(QueryBuilder query) {
+		if (query.getType() != QueryBuilder.TYPE_SELECT) {
+			throw new IllegalArgumentException("Use executeQuery() to run an UPDATE or DELETE query");
+		}
+		
+		return selectCached(query.getTableName(), query.toSql(), query.getArguments());
+	}
+	
+	/**
+	 * Run a SELECT query built by a QueryBuilder and stream the rows to the callback
+	 * @param	query	The select query to execute
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean select(QueryBuilder query, RowCallback callback) {
+		if (query.getType() != QueryBuilder.TYPE_SELECT) {
+			throw new IllegalArgumentException("Use executeQuery() to run an UPDATE or DELETE query");
+		}
+		
+		return selectQuery(query.toSql(), query.getArguments(), callback);
+	}
+	
+	/**
+	 * Select every row of the table of a model class as populated models
+	 * @param	modelClass	A BaseModel subclass with a public no argument constructor
+	 * @return	A Vector of models
+	 */
+	public Vector selectAll(Class modelClass) {
+		return selectAll(new ClassModelFactory(modelClass));
+	}
+	
+	/**
+	 * Select every row of the table of a model as populated models, only the columns
+	 * of the model are selected
+	 * @param	factory	Creates a model for each row
+	 * @return	A Vector of models
+	 */
+	public Vector selectAll(ModelFactory factory) {
+		ModelMetadata metadata = factory.createModel().getMetadata();
+		return selectModels(factory, QueryBuilder.select(metadata.getTableName(), metadata.getColumnNames()));
+	}
+	
+	/**
+	 * Select the rows that match the provided where column and value as populated models
+	 * @param	modelClass	A BaseModel subclass with a public no argument constructor
+	 * @param	whereColumn	The where condition column
+	 * @param 	whereValue	The where condition value
+	 * @return	A Vector of models
+	 */
+	public Vector selectWhere(Class modelClass, String whereColumn, String whereValue) {
+		return selectWhere(new ClassModelFactory(modelClass), whereColumn, whereValue);
+	}
+	
+	/**
+	 * Select the rows that match the provided where column and value as populated models,
+	 * only the columns of the model are selected
+	 * @param	factory	Creates a model for each row
+	 * @param	whereColumn	The where condition column
+	 * @param 	whereValue	The where condition value
+	 * @return	A Vector of models
+	 */
+	public Vector selectWhere(ModelFactory factory, String whereColumn, String whereValue) {
+		ModelMetadata metadata = factory.createModel().getMetadata();
+		return selectModels(factory, QueryBuilder.select(metadata.getTableName(), metadata.getColumnNames())
+				.whereEquals(whereColumn, whereValue));
+	}
+	
+	/**
+	 * Run a SELECT query and return the rows as populated models
+	 * @param	modelClass	A BaseModel subclass with a public no argument constructor
+	 * @param	query	The select query to execute
+	 * @return	A Vector of models
+	 */
+	public Vector selectModels(Class modelClass, QueryBuilder query) {
+		return selectModels(new ClassModelFactory(modelClass), query);
+	}
+	
+	/**
+	 * Run a SELECT query and return the rows as populated models. A query that selects
+	 * some of the columns fills only those fields, the others stay null and clean
+	 * @param	factory	Creates a model for each row
+	 * @param	query	The select query to execute
+	 * @return	A Vector of models
+	 */
+	public Vector selectModels(ModelFactory factory, QueryBuilder query) {
+		final Vector models = new Vector();
+		selectModels(factory, query, new ModelCallback() {
+			public boolean onModel(BaseModel model) {
+				models.addElement(model);
+				return true;
+			}
+		});
+		
+		return models;
+	}
+	
+	/**
+	 * Run a SELECT query and stream each row to the callback as a new model, the
+	 * columns of the query are matched to the model fields once per query and no
+	 * Row is kept after its model has been populated
+	 * @param	factory	Creates a model for each row
+	 * @param	query	The select query to execute
+	 * @param	callback	The callback that receives each model
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectModels(final ModelFactory factory, QueryBuilder query, final ModelCallback callback) {
+		final ModelMapper mapper = new ModelMapper(factory.createModel().getMetadata());
+		return select(query, new RowCallback() {
+			public boolean onRow(Row row) {
+				BaseModel model = factory.createModel();
+				fillModel(mapper, row, model);
+				return callback.onModel(model);
+			}
+		});
+	}
+	
+	/**
+	 * Run a SELECT query and populate the same model instance from every row before
+	 * passing it to the callback, so a large scan allocates no models. The callback
+	 * must copy anything it needs to keep since the model is overwritten by the next row
+	 * @param	model	The model populated from each row
+	 * @param	query	The select query to execute
+	 * @param	callback	The callback that receives the model for each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectModels(final BaseModel model, QueryBuilder query, final ModelCallback callback) {
+		final ModelMapper mapper = new ModelMapper(model.getMetadata());
+		return select(query, new RowCallback() {
+			public boolean onRow(Row row) {
+				fillModel(mapper, row, model);
+				return callback.onModel(model);
+			}
+		});
+	}
+	
+	/**
+	 * Run a custom SELECT SQL query and return the rows as a Vector
+	 * @param	selectQuery	The select query to execute
+	 * @return	A vector of rows associated with the provided query
+	 */
+	public Vector selectQuery(String selectQuery) {	
+		RowCollector collector = new RowCollector();
+		selectQuery(selectQuery, collector);
+		return collector.getRows();
+	}
+	
+	/**
+	 * Run a custom SELECT SQL query and stream the rows to the callback one row at a 
+	 * time, the cursor is closed when the last row is read, when the callback returns
+	 * false or when the query fails
+	 * @param	selectQuery	The select query to execute
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 */
+	public boolean selectQuery(String selectQuery, RowCallback callback) {
+		return selectQuery(selectQuery, null, callback);
+	}
+	
+	/**
+	 * Run a custom SELECT SQL query with ? placeholders and stream the rows to the 
+	 * callback one row at a time
+	 * @param	selectQuery	The select query to execute
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 * @param	callback	The callback that receives each row
+	 * @return	Did the query run successfully?
+	 * @see	#selectQuery(String, RowCallback)
+	 */
+	public boolean selectQuery(String selectQuery, Object[] arguments, RowCallback callback) {
+		boolean queryExecuted = false;
+		
+		RowCursor cursor = openQuery(selectQuery, arguments);
+		if (!(cursor instanceof RowCursor)) {
+			return false;
+		}
+		
+		try {
+			while (cursor.next()) {
+				if (!callback.onRow(cursor.getRow())) {
+					break;
+				}
+			}
+			
+			queryExecuted = true;
+		} catch (Exception e) {
+			System.out.println("Select failed: " + e.getMessage());
+		} finally {
+			cursor.close();
+		}
+		
+		return queryExecuted;
+	}
+	
+	/**
+	 * Run a custom SELECT SQL query and return a cursor over its rows, the cursor 
+	 * holds a database handle until it is closed
+	 * @param	selectQuery	The select query to execute
+	 * @return	A cursor positioned before the first row or null if the query failed
+	 */
+	public RowCursor openQuery(String selectQuery) {
+		return openQuery(selectQuery, null);
+	}
+	
+	/**
+	 * Run a custom SELECT SQL query with ? placeholders and return a cursor over its rows
+	 * @param	selectQuery	The select query to execute
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 * @return	A cursor positioned before the first row or null if the query failed
+	 * @see	#openQuery(String)
+	 */
+	public RowCursor openQuery(String selectQuery, Object[] arguments) {
+		Database database = null;
+		Statement statement = null;
+		long start = -1;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			start = mConnection.startTimer();
+			statement = mConnection.prepare(database, selectQuery);
+			bindArguments(statement, arguments, selectQuery);
+			
+			long executeStart = mConnection.startTimer();
+			Cursor cursor = statement.getCursor();
+			mConnection.endPhase(ProviderListener.PHASE_EXECUTE, selectQuery, executeStart);
+			return new RowCursor(mConnection, database, statement, cursor, selectQuery, mConnection.elapsed(start));
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Select failed: " + e.getMessage());
+		}
+		
+		mConnection.finish(statement, error);
+		mConnection.release(database, error);
+		mConnection.reportStatement(selectQuery, -1, mConnection.elapsed(start), false);
+		return null;
+	}
+	
+	/**
+	 * Run a SELECT query built by a QueryBuilder and return a cursor over its rows
+	 * @param	query	The select query to execute
+	 * @return	A cursor positioned before the first row or null if the query failed
+	 */
+	public RowCursor openQuery(QueryBuilder query) {
+		if (query.getType() != QueryBuilder.TYPE_SELECT) {
+			throw new IllegalArgumentException("Use executeQuery() to run an UPDATE or DELETE query");
+		}
+		
+		return openQuery(query.toSql(), query.getArguments());
+	}
+	
+	/**
+	 * Ask SQLite how it would run a query without running it
+	 * @param	query	The query, its ? placeholders are left unbound
+	 * @return	The detail column of each row of EXPLAIN QUERY PLAN or null if the
+	 * query could not be explained
+	 */
+	public String[] explainQueryPlan(String query) {
+		Vector plan = new Vector();
+		
+		Database database = null;
+		Statement statement = null;
+		Cursor cursor = null;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			// not cached or reported, so explaining does not disturb what it measures
+			statement = database.createStatement("EXPLAIN QUERY PLAN " + query);
+			statement.prepare();
+			cursor = statement.getCursor();
+			while (cursor.next()) {
+				Row row = cursor.getRow();
+				plan.addElement(row.getString(row.getColumnNames().length - 1));
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Explain failed: " + e.getMessage());
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			DatabaseHelper.closeStatement(statement);
+			mConnection.release(database, error);
+		}
+		
+		if (error instanceof Exception) {
+			return null;
+		}
+		
+		String[] details = new String[plan.size()];
+		plan.copyInto(details);
+		return details;
+	}
+	
+	/**
+	 * Explain the queries recorded by an advisor that have not been explained yet
+	 * and suggest the indexes that would remove their full scans and sorts. The
+	 * advisor must be installed with setListener() while the application runs
+	 * @param	advisor	The advisor that recorded the queries
+	 * @return	The suggested indexes, the most query time first
+	 * @see	QueryPlanAdvisor
+	 */
+	public IndexSuggestion[] adviseIndexes(QueryPlanAdvisor advisor) {
+		String[] fingerprints = advisor.getUnexplainedQueries();
+		for (int i = 0; i < fingerprints.length; i++) {
+			String[] plan = explainQueryPlan(fingerprints[i]);
+			// a query that cannot be explained is marked with an empty plan
+			advisor.setPlan(fingerprints[i], plan instanceof String[] ? plan : new String[0]);
+		}
+		
+		return advisor.getSuggestions();
+	}
+	
+	/**
+	 * Create the suggested indexes, each in its own statement so one that fails
+	 * does not stop the others. The queries explained before are not explained again,
+	 * call QueryPlanAdvisor.reset() to measure the new indexes
+	 * @param	suggestions	The indexes from adviseIndexes()
+	 * @return	The number of indexes created or already present
+	 */
+	public int createIndexes(IndexSuggestion[] suggestions) {
+		int created = 0;
+		for (int i = 0; i < suggestions.length; i++) {
+			if (executeQuery(suggestions[i].getCreateStatement())) {
+				created++;
+			}
+		}
+		
+		return created;
+	}
+	
+	/**
+	 * @return	The number of rows in the table or -1 if the query failed
+	 */
+	public int count(String tableName) {
+		return count(QueryBuilder.select(tableName));
+	}
+	
+	/**
+	 * Count the rows that match the WHERE clause of a query with SELECT COUNT(*),
+	 * no row is read into memory. The columns, ORDER BY and LIMIT of the query are 
+	 * ignored
+	 * @param	query	A SELECT query of the table and condition to count
+	 * @return	The number of matching rows or -1 if the query failed
+	 */
+	public int count(QueryBuilder query) {
+		return (int)queryLong(buildAggregateQuery("COUNT(*)", query), query.getArguments(), -1);
+	}
+	
+	/**
+	 * Check for a matching row with SELECT EXISTS, SQLite stops at the first match
+	 * @param	query	A SELECT query of the table and condition to check
+	 * @return	Does a row match? False if the query failed
+	 */
+	public boolean exists(QueryBuilder query) {
+		String existsQuery = "SELECT EXISTS (" + buildAggregateQuery("1", query) + ")";
+		return queryLong(existsQuery, query.getArguments(), 0) == 1;
+	}
+	
+	/**
+	 * @param	query	A SELECT query of the table and condition, its columns, ORDER BY
+	 * and LIMIT are ignored
+	 * @param	column	The column to read
+	 * @param	defaultValue	The value returned when no row matches or the query fails
+	 * @return	The smallest value of the column in the matching rows
+	 */
+	public long min(QueryBuilder query, String column, long defaultValue) {
+		return queryLong(buildAggregateQuery("MIN(" + column + ")", query), query.getArguments(), defaultValue);
+	}
+	
+	/**
+	 * @return	The largest value of the column in the matching rows
+	 * @see	#min(QueryBuilder, String, long)
+	 */
+	public long max(QueryBuilder query, String column, long defaultValue) {
+		return queryLong(buildAggregateQuery("MAX(" + column + ")", query), query.getArguments(), defaultValue);
+	}
+	
+	/**
+	 * @param	query	A SELECT query of the table and condition, its columns, ORDER BY
+	 * and LIMIT are ignored
+	 * @param	column	An integer column
+	 * @return	The sum of the column in the matching rows, 0 when no row matches or the
+	 * query fails
+	 */
+	public long sum(QueryBuilder query, String column) {
+		return queryLong(buildAggregateQuery("SUM(" + column + ")", query), query.getArguments(), 0);
+	}
+	
+	/**
+	 * @return	The sum of the column in the matching rows as a double, using SQLite's 
+	 * TOTAL() so a REAL column or a sum that overflows a long is not lost
+	 * @see	#sum(QueryBuilder, String)
+	 */
+	public double total(QueryBuilder query, String column) {
+		return queryDouble(buildAggregateQuery("TOTAL(" + column + ")", query), query.getArguments(), 0);
+	}
+	
+	/**
+	 * Run a query that returns a single value and read it straight from the cursor
+	 * @param	query	The query, only the first column of the first row is read
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 * @param	defaultValue	The value returned when there is no row, the value is NULL
+	 * or the query fails
+	 * @return	The value as a long
+	 */
+	public long queryLong(String query, Object[] arguments, long defaultValue) {
+		long value = defaultValue;
+		
+		Database database = null;
+		Statement statement = null;
+		Cursor cursor = null;
+		long start = -1;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			start = mConnection.startTimer();
+			statement = mConnection.prepare(database, query);
+			bindArguments(statement, arguments, query);
+			cursor = statement.getCursor();
+			if (cursor.next() && !cursor.getRow().isNull(0)) {
+				value = cursor.getRow().getLong(0);
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Query failed: " + e.getMessage());
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+			mConnection.release(database, error);
+			mConnection.reportStatement(query, 1, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * @return	The value as a double
+	 * @see	#queryLong(String, Object[], long)
+	 */
+	public double queryDouble(String query, Object[] arguments, double defaultValue) {
+		double value = defaultValue;
+		
+		Database database = null;
+		Statement statement = null;
+		Cursor cursor = null;
+		long start = -1;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			start = mConnection.startTimer();
+			statement = mConnection.prepare(database, query);
+			bindArguments(statement, arguments, query);
+			cursor = statement.getCursor();
+			if (cursor.next() && !cursor.getRow().isNull(0)) {
+				value = cursor.getRow().getDouble(0);
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Query failed: " + e.getMessage());
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+			mConnection.release(database, error);
+			mConnection.reportStatement(query, 1, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Run a query that returns a single value and read it straight from the cursor
+	 * @param	query	The query, only the first column of the first row is read
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 * @return	The value as a String or null if there is no row, the value is NULL or 
+	 * the query fails
+	 */
+	public String queryString(String query, Object[] arguments) {
+		String value = null;
+		
+		Database database = null;
+		Statement statement = null;
+		Cursor cursor = null;
+		long start = -1;
+		Exception error = null;
+		try {
+			database = mConnection.acquireReader();
+			start = mConnection.startTimer();
+			statement = mConnection.prepare(database, query);
+			bindArguments(statement, arguments, query);
+			cursor = statement.getCursor();
+			if (cursor.next()) {
+				value = cursor.getRow().getString(0);
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Query failed: " + e.getMessage());
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+			mConnection.release(database, error);
+			mConnection.reportStatement(query, 1, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Select one page of the SQL table. Pages are read by keyset, each page continues 
+	 * after the ORDER BY value and pid of the last row of the previous page, so with an 
+	 * index on the ORDER BY column a deep page seeks the index and costs the same as 
+	 * the first one
+	 * @param	tableName	The table to select the values from
+	 * @param	columnOrderBy	The column to order the results by or null to order by pid
+	 * @param	direction	The direction of the query, ASC or DESC
+	 * @param	pageSize	The maximum number of rows in the page
+	 * @param	continuationToken	The token of the previous page or null for the first page
+	 * @return	The page of rows or null if the query failed
+	 */
+	public Page selectPage(String tableName, String columnOrderBy, String direction, 
+			int pageSize, String continuationToken) {
+		return selectWherePage(tableName, null, null, columnOrderBy, direction, pageSize, continuationToken);
+	}
+	
+	/**
+	 * Select one page of the rows that match the provided where column and value
+	 * @param	tableName	The table to select the values from
+	 * @param	whereColumn	The where condition column or null to select every row
 	 * @param 	whereValue	The where condition value
-	 * @return	A Vector of rows
+	 * @param	columnOrderBy	The column to order the results by or null to order by pid
+	 * @param	direction	The direction of the query, ASC or DESC
+	 * @param	pageSize	The maximum number of rows in the page
+	 * @param	continuationToken	The token of the previous page or null for the first page
+	 * @return	The page of rows or null if the query failed
+	 * @see	#selectPage(String, String, String, int, String)
 	 */
-	public Vector selectWhere(String tableName, String whereColumn, String whereValue) {
-		Vector results = new Vector();
+	public Page selectWherePage(String tableName, String whereColumn, String whereValue, 
+			final String columnOrderBy, String direction, final int pageSize, String continuationToken) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("The pageSize must be at least 1");
+		}
+		
+		PageToken token = null;
+		if (continuationToken instanceof String) {
+			token = PageToken.parse(continuationToken);
+		}
+		
+		boolean descending = direction instanceof String && direction.trim().equalsIgnoreCase("DESC");
+		boolean afterNull = token instanceof PageToken && !(token.getValue() instanceof Object);
+		
+		// one row more than the page is read to find out if there is another page
+		String pageQuery = DatabaseHelper.buildSelectPageQuery(tableName, whereColumn, columnOrderBy, 
+			descending, token instanceof PageToken, afterNull, pageSize + 1);
+		
+		Vector arguments = new Vector();
+		if (whereColumn instanceof String) {
+			arguments.addElement(whereValue);
+		}
+		
+		if (token instanceof PageToken) {
+			if (columnOrderBy instanceof String && !afterNull) {
+				arguments.addElement(token.getValue());
+				arguments.addElement(token.getValue());
+			}
+			arguments.addElement(new Long(token.getPid()));
+		}
+		
+		Object[] argumentArray = new Object[arguments.size()];
+		arguments.copyInto(argumentArray);
+		
+		final Vector rows = new Vector();
+		final PageToken[] nextToken = new PageToken[1];
+		RowCallback pageCallback = new RowCallback() {
+			public boolean onRow(Row row) {
+				if (rows.size() == pageSize) {
+					try {
+						nextToken[0] = PageToken.fromRow((Row)rows.lastElement(), columnOrderBy);
+					} catch (DataTypeException e) {
+						// fail the query rather than return a page without its continuation
+						throw new IllegalStateException(e.getMessage());
+					}
+					return false;
+				}
+				
+				rows.addElement(row);
+				return true;
+			}
+		};
+		
+		if (!selectQuery(pageQuery, argumentArray, pageCallback)) {
+			return null;
+		}
+		
+		// NULL sorts last in DESC order, so once the values run out the page continues 
+		// with the NULL rows from a query of its own that can still use the index
+		if (descending && columnOrderBy instanceof String && token instanceof PageToken && !afterNull 
+				&& !(nextToken[0] instanceof PageToken)) {
+			String nullQuery = DatabaseHelper.buildSelectPageQuery(tableName, whereColumn, columnOrderBy, 
+				true, false, true, pageSize + 1 - rows.size());
+			Object[] nullArguments = whereColumn instanceof String ? new Object[] { whereValue } : new Object[0];
+			if (!selectQuery(nullQuery, nullArguments, pageCallback)) {
+				return null;
+			}
+		}
+		
+		return new Page(rows, nextToken[0] instanceof PageToken ? nextToken[0].toString() : null);
+	}
+	
+	/**
+	 * Commit a batch of queued writes in one transaction, called by the background 
+	 * writer. If the transaction fails each write is retried on its own so only the
+	 * writes that fail are reported as failed
+	 * @param	batch	The writes to commit
+	 */
+	void writeBatch(WriteHandle[] batch) {
+		long[] rowIds = new long[batch.length];
 		
 		Database database = null;
+		boolean inTransaction = false;
+		boolean committed = false;
+		Exception error = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-			String selectWhereQuery = DatabaseHelper.buildSelectWhereQuery(tableName,whereColumn,whereValue);
-			Statement statement = database.createStatement(selectWhereQuery); 
-			statement.prepare();
-			Cursor cursor = statement.getCursor();   
+			database = mConnection.acquire();
+			mConnection.begin(database);
+			inTransaction = true;
+			for (int i = 0; i < batch.length; i++) {
+				rowIds[i] = executeWrite(database, batch[i]);
+			}
 			
-	        while(cursor.next()) {
-	            Row row = cursor.getRow();  
-	        	results.addElement(row);
-	        }        
-	        
-	        cursor.close();
-	        statement.close();
+			commitTransaction(database);
+			inTransaction = false;
+			committed = true;
 		} catch (Exception e) {
-			System.out.println("Select failed: " + e.getMessage());
+			error = e;
+			System.out.println("Write failed: " + e.getMessage());
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			for (int i = 0; i < batch.length; i++) {
+				invalidateResults(batch[i]);
+			}
 		}
 		
-		return results;
+		if (committed) {
+			for (int i = 0; i < batch.length; i++) {
+				batch[i].complete(true, rowIds[i], null);
+			}
+		} else if (batch.length == 1) {
+			batch[0].complete(false, -1, error.getMessage());
+		} else {
+			for (int i = 0; i < batch.length; i++) {
+				writeBatch(new WriteHandle[] { batch[i] });
+			}
+		}
 	}
 	
 	/**
-	 * Run a custom SELECT SQL query and return the rows as a Vector
-	 * @param	selectQuery	The select query to execute
-	 * @return	A vector of rows associated with the provided query
+	 * Run a SELECT query that reads one table through the result cache
+	 * @return	A vector of rows, cached rows are returned in a new Vector
 	 */
-	public Vector selectQuery(String selectQuery) {	
-		Vector results = new Vector();
+	private Vector selectCached(String tableName, String query, Object[] arguments) {
+		// the rows read inside a transaction are not committed so they are not shared
+		String key = mResultCache.isEnabled() && mConnection.getTransactionLevel() == 0 ? 
+				ResultCache.buildKey(query, arguments) : null;
+		if (key instanceof String) {
+			Vector rows = mResultCache.get(key);
+			if (rows instanceof Vector) {
+				return rows;
+			}
+		}
+		
+		// a write that finishes while the query runs stops the rows being cached
+		long generation = mResultCache.getGeneration();
+		RowCollector collector = new RowCollector();
+		if (selectQuery(query, arguments, collector) && key instanceof String) {
+			mResultCache.put(key, new String[] { tableName }, collector.getRows(), generation);
+		}
+		
+		return collector.getRows();
+	}
+	
+	/**
+	 * Drop the cached results of the table a write query changes, every result is
+	 * dropped if the table cannot be found
+	 */
+	private void invalidateResults(String query) {
+		String tableName = DatabaseHelper.getWriteTableName(query);
+		if (tableName instanceof String) {
+			mResultCache.invalidate(tableName);
+		} else {
+			mResultCache.clear();
+		}
+	}
+	
+	private void invalidateResults(WriteHandle handle) {
+		if (handle.getType() == WriteHandle.TYPE_INSERT) {
+			mResultCache.invalidate(handle.getModel().getTableName());
+		} else {
+			invalidateResults(handle.getQuery());
+		}
+	}
+	
+	/**
+	 * Run a queued write on a handle that is already open
+	 * @return	The row id of an insert or -1
+	 */
+	private long executeWrite(Database database, WriteHandle handle) throws DatabaseException {
+		if (handle.getType() == WriteHandle.TYPE_INSERT) {
+			return executeInsert(database, handle.getModel());
+		}
+		
+		executeStatement(database, handle.getQuery(), handle.getArguments());
+		return -1;
+	}
+	
+	private synchronized WriteBehindQueue getWriteQueue() {
+		if (!(mWriteQueue instanceof WriteBehindQueue)) {
+			throw new IllegalStateException("Write-behind is not enabled");
+		}
+		
+		return mWriteQueue;
+	}
+	
+	/**
+	 * Prepare, bind and execute a query on a handle that is already open
+	 * @param	database	The open database handle
+	 * @param	query	The query to execute
+	 * @param	arguments	The values bound to the placeholders of the query or null
+	 */
+	void executeStatement(Database database, String query, Object[] arguments) throws DatabaseException {
+		long start = mConnection.startTimer();
+		Statement statement = null;
+		Exception error = null;
+		try {
+			statement = mConnection.prepare(database, query);
+			bindArguments(statement, arguments, query);
+			
+			long executeStart = mConnection.startTimer();
+			statement.execute();
+			mConnection.endPhase(ProviderListener.PHASE_EXECUTE, query, executeStart);
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			mConnection.finish(statement, error);
+			mConnection.reportStatement(query, -1, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+		
+		if (DatabaseHelper.isSchemaQuery(query)) {
+			mConnection.schemaChanged();
+		}
+	}
+	
+	/**
+	 * Execute every statement of a script on a handle that is already open
+	 * @param	database	The open database handle
+	 * @param	inputStream	The script, the caller closes it
+	 */
+	void executeScript(Database database, InputStream inputStream) throws DatabaseException, IOException {
+		SchemaScriptReader reader = new SchemaScriptReader(inputStream);
+		String query;
+		while ((query = reader.nextStatement()) != null) {
+			executeStatement(database, query, null);
+		}
+	}
+	
+	/**
+	 * @param	database	The open database handle
+	 * @return	The schema version stored in PRAGMA user_version
+	 */
+	private int readSchemaVersion(Database database) throws DatabaseException {
+		return readInteger(database, "PRAGMA user_version");
+	}
+	
+	/**
+	 * @param	database	The open database handle
+	 * @param	query	A query that returns a single integer
+	 * @return	The integer in the first column of the first row, 0 when there is no row
+	 */
+	private int readInteger(Database database, String query) throws DatabaseException {
+		Statement statement = null;
+		Cursor cursor = null;
+		Exception error = null;
+		try {
+			statement = mConnection.prepare(database, query);
+			cursor = statement.getCursor();
+			return cursor.next() ? cursor.getRow().getInteger(0) : 0;
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+		}
+	}
+	
+	/**
+	 * Delete the rows that match a list of long or String keys in one transaction
+	 * @param	longKeys	The keys or null when they are Strings
+	 * @param	stringKeys	The keys or null when they are longs
+	 * @param	keyCount	The number of keys
+	 * @return	The number of rows deleted or -1 if the delete failed
+	 */
+	private int deleteKeys(String tableName, String columnName, long[] longKeys, String[] stringKeys, 
+			int keyCount, int chunkSize) {
+		if (keyCount == 0) {
+			return 0;
+		}
+		
+		chunkSize = Math.min(Math.max(chunkSize, 1), MAX_BOUND_VARIABLES);
+		
+		int deleted = 0;
 		
 		Database database = null;
+		boolean inTransaction = false;
+		Exception error = null;
 		try {
-			database = DatabaseHelper.open(mDatabaseFileRoot);
-			Statement statement = database.createStatement(selectQuery); 
-			statement.prepare();
-			Cursor cursor = statement.getCursor();   
+			database = mConnection.acquire();
+			mConnection.begin(database);
+			inTransaction = true;
+			// every chunk but the last has the same query so its statement is cached
+			for (int offset = 0; offset < keyCount; offset += chunkSize) {
+				int count = Math.min(chunkSize, keyCount - offset);
+				deleted += executeDelete(database, DatabaseHelper.buildDeleteInQuery(tableName, columnName, count), 
+						longKeys, stringKeys, offset, count);
+			}
 			
-	        while(cursor.next()) {
-	            Row row = cursor.getRow();  
-	        	results.addElement(row);
-	        }        
-	        
-	        cursor.close();
-	        statement.close();
+			commitTransaction(database);
+			inTransaction = false;
 		} catch (Exception e) {
-			System.out.println("Select failed: " + e.getMessage());
+			error = e;
+			deleted = -1;
+			System.out.println("Delete failed: " + e.getMessage());
 		} finally {
-			DatabaseHelper.closeDatabase(database);
+			if (inTransaction) {
+				try {
+					mConnection.rollback(database);
+				} catch (DatabaseException e) { }
+			}
+			mConnection.release(database, error);
+			mResultCache.invalidate(tableName);
+		}
+		
+		return deleted;
+	}
+	
+	/**
+	 * Bind one chunk of keys to a DELETE ... IN query and execute it on a handle that
+	 * is already open, the long keys are bound without boxing
+	 * @param	offset	The index of the first key of the chunk
+	 * @param	count	The number of keys in the chunk and placeholders in the query
+	 * @return	The number of rows deleted
+	 */
+	private int executeDelete(Database database, String query, long[] longKeys, String[] stringKeys, 
+			int offset, int count) throws DatabaseException {
+		long start = mConnection.startTimer();
+		Statement statement = null;
+		Exception error = null;
+		int changes = -1;
+		try {
+			statement = mConnection.prepare(database, query);
+			
+			long bindStart = mConnection.startTimer();
+			for (int i = 0; i < count; i++) {
+				if (longKeys instanceof long[]) {
+					statement.bind(i + 1, longKeys[offset + i]);
+				} else if (stringKeys[offset + i] instanceof String) {
+					statement.bind(i + 1, stringKeys[offset + i]);
+				} else {
+					statement.bindNull(i + 1);
+				}
+			}
+			mConnection.endPhase(ProviderListener.PHASE_BIND, query, bindStart);
+			
+			long executeStart = mConnection.startTimer();
+			statement.execute();
+			mConnection.endPhase(ProviderListener.PHASE_EXECUTE, query, executeStart);
+			changes = readInteger(database, "SELECT changes()");
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			mConnection.finish(statement, error);
+			mConnection.reportStatement(query, changes, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+		
+		return changes;
+	}
+	
+	/**
+	 * Write the dirty columns of a model to its row on a handle that is already open
+	 * @param	database	The open database handle
+	 * @param	model	The model to write, its primary key must be set
+	 * @param	columns	The dirty columns without the primary key
+	 * @return	The number of rows changed
+	 */
+	private int executeUpdate(Database database, BaseModel model, int[] columns) throws DatabaseException {
+		ModelMetadata metadata = model.getMetadata();
+		String query = metadata.getUpdateQuery(columns);
+		long start = mConnection.startTimer();
+		Statement statement = null;
+		Exception error = null;
+		int changes = -1;
+		try {
+			statement = mConnection.prepare(database, query);
+			
+			long bindStart = mConnection.startTimer();
+			for (int i = 0; i < columns.length; i++) {
+				bindColumn(statement, i + 1, model, columns[i]);
+			}
+			bindColumn(statement, columns.length + 1, model, metadata.getPrimaryKeyIndex());
+			mConnection.endPhase(ProviderListener.PHASE_BIND, query, bindStart);
+			
+			long executeStart = mConnection.startTimer();
+			statement.execute();
+			mConnection.endPhase(ProviderListener.PHASE_EXECUTE, query, executeStart);
+			changes = readInteger(database, "SELECT changes()");
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			mConnection.finish(statement, error);
+			mConnection.reportStatement(query, changes, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+		
+		return changes;
+	}
+	
+	/**
+	 * Update or insert a model on a handle that is already open. A model without a
+	 * primary key value is inserted and given the new key, otherwise the dirty columns
+	 * are written to the row and the whole model is inserted with its key when the 
+	 * row does not exist. The model is not marked clean
+	 * @param	database	The open database handle
+	 * @param	model	The model to write
+	 */
+	private void executeUpsert(Database database, BaseModel model) throws DatabaseException {
+		ModelMetadata metadata = model.getMetadata();
+		int primaryKey = metadata.getPrimaryKeyIndex();
+		if (primaryKey == -1 || model.isNull(primaryKey)) {
+			long rowId = executeInsert(database, model);
+			if (primaryKey != -1) {
+				model.setLong(primaryKey, rowId);
+			}
+			return;
+		}
+		
+		int[] columns = getDirtyColumns(model);
+		if (columns.length > 0) {
+			if (executeUpdate(database, model, columns) > 0) {
+				return;
+			}
+		} else if (rowExists(database, model)) {
+			return;
+		}
+		
+		// the row does not exist, a constraint the insert breaks fails the upsert
+		String query = metadata.getInsertWithKeyQuery();
+		long start = mConnection.startTimer();
+		Statement statement = null;
+		Exception error = null;
+		try {
+			statement = mConnection.prepare(database, query);
+			
+			long bindStart = mConnection.startTimer();
+			bindModel(statement, model);
+			bindColumn(statement, metadata.getColumnCount(), model, primaryKey);
+			mConnection.endPhase(ProviderListener.PHASE_BIND, query, bindStart);
+			
+			long executeStart = mConnection.startTimer();
+			statement.execute();
+			mConnection.endPhase(ProviderListener.PHASE_EXECUTE, query, executeStart);
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			mConnection.finish(statement, error);
+			mConnection.reportStatement(query, -1, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+	}
+	
+	/**
+	 * @param	database	The open database handle
+	 * @param	model	A model with a primary key value
+	 * @return	Does the row of the model exist?
+	 */
+	private boolean rowExists(Database database, BaseModel model) throws DatabaseException {
+		ModelMetadata metadata = model.getMetadata();
+		String query = metadata.getExistsQuery();
+		long start = mConnection.startTimer();
+		Statement statement = null;
+		Cursor cursor = null;
+		Exception error = null;
+		try {
+			statement = mConnection.prepare(database, query);
+			bindColumn(statement, 1, model, metadata.getPrimaryKeyIndex());
+			cursor = statement.getCursor();
+			return cursor.next();
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			DatabaseHelper.closeCursor(cursor);
+			mConnection.finish(statement, error);
+			mConnection.reportStatement(query, -1, mConnection.elapsed(start), !(error instanceof Exception));
+		}
+	}
+	
+	/**
+	 * @return	The dirty columns of the model without the primary key
+	 */
+	private static int[] getDirtyColumns(BaseModel model) {
+		int[] columns = model.getDirtyColumns();
+		int primaryKey = model.getMetadata().getPrimaryKeyIndex();
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] == primaryKey) {
+				int[] withoutKey = new int[columns.length - 1];
+				System.arraycopy(columns, 0, withoutKey, 0, i);
+				System.arraycopy(columns, i + 1, withoutKey, i, columns.length - i - 1);
+				return withoutKey;
+			}
+		}
+		
+		return columns;
+	}
+	
+	/**
+	 * Insert a model on a handle that is already open
+	 * @param	database	The open database handle
+	 * @param	model	The model to insert
+	 * @return	The row id of the inserted row
+	 */
+	private long executeInsert(Database database, BaseModel model) throws DatabaseException {
+		// the INSERT query is built once per model class
+		String query = model.getMetadata().getInsertQuery();
+		long start = mConnection.startTimer();
+		Statement statement = null;
+		Exception error = null;
+		try {
+			statement = mConnection.prepare(database, query);
+			executeModel(statement, model, query);
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			mConnection.finish(statement, error);
+			boolean successful = !(error instanceof Exception);
+			mConnection.reportStatement(query, successful ? 1 : -1, mConnection.elapsed(start), successful);
+		}
+		
+		// get the row that was just inserted
+		return DatabaseHelper.getLastWriteRowId(database);
+	}
+	
+	/**
+	 * Bind the values of a model to a prepared INSERT statement and execute it
+	 */
+	private void executeModel(Statement statement, BaseModel model, String query) throws DatabaseException {
+		long bindStart = mConnection.startTimer();
+		bindModel(statement, model);
+		mConnection.endPhase(ProviderListener.PHASE_BIND, query, bindStart);
+		
+		long executeStart = mConnection.startTimer();
+		statement.execute();
+		mConnection.endPhase(ProviderListener.PHASE_EXECUTE, query, executeStart);
+	}
+	
+	/**
+	 * Build a query that selects one expression from the table and WHERE clause of
+	 * a SELECT query
+	 * @param	expression	The expression to select, such as COUNT(*)
+	 * @param	query	The SELECT query, its columns, ORDER BY and LIMIT are not used
+	 */
+	private static String buildAggregateQuery(String expression, QueryBuilder query) {
+		if (query.getType() != QueryBuilder.TYPE_SELECT) {
+			throw new IllegalArgumentException("An aggregate needs a SELECT query");
+		}
+		
+		String where = query.getWhereClause();
+		return "SELECT " + expression + " FROM " + query.getTableName() + (where.length() > 0 ? " WHERE " + where : "");
+	}
+	
+	/**
+	 * Fill a buffer from a stream, a stream may return fewer bytes than asked for
+	 * before its end
+	 * @return	The number of bytes read, less than the buffer only at the end of the stream
+	 */
+	private static int readChunk(InputStream inputStream, byte[] buffer) throws IOException {
+		int length = 0;
+		while (length < buffer.length) {
+			int read = inputStream.read(buffer, length, buffer.length - length);
+			if (read == -1) {
+				break;
+			}
+			length += read;
 		}
 		
-		return results;
+		return length;
+	}
+	
+	/**
+	 * Bind the values of a query to a prepared statement
+	 * @param	arguments	The values or null if the query has no placeholders
+	 */
+	private void bindArguments(Statement statement, Object[] arguments, String query) throws DatabaseException {
+		if (arguments instanceof Object[]) {
+			long bindStart = mConnection.startTimer();
+			DatabaseHelper.bindArguments(statement, arguments);
+			mConnection.endPhase(ProviderListener.PHASE_BIND, query, bindStart);
+		}
+	}
+	
+	/**
+	 * Commit the transaction of a handle, timed as the commit phase
+	 */
+	private void commitTransaction(Database database) throws DatabaseException {
+		long start = mConnection.startTimer();
+		mConnection.commit(database);
+		mConnection.endPhase(ProviderListener.PHASE_COMMIT, null, start);
+	}
+	
+	/**
+	 * Populate a model from a row inside a RowCallback, a row that cannot be read 
+	 * fails the query
+	 */
+	private static void fillModel(ModelMapper mapper, Row row, BaseModel model) {
+		try {
+			mapper.fill(row, model);
+		} catch (DataTypeException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Bind the values of a model to the INSERT query of its metadata, the values are
+	 * read from the typed storage of the model so nothing is boxed. The primary key
+	 * is not bound and a null long or integer is bound as -1
+	 * @param	statement	The prepared INSERT statement
+	 * @param	model	The model to bind
+	 */
+	private void bindModel(Statement statement, BaseModel model) throws DatabaseException {
+		ModelMetadata metadata = model.getMetadata();
+		for (int i = 0; i < metadata.getColumnCount(); i++) {
+			if (i != metadata.getPrimaryKeyIndex()) {
+				bindColumn(statement, metadata.getBindIndex(i), model, i);
+			}
+		}
+	}
+	
+	/**
+	 * Bind the value of one column of a model, a null long or integer is bound as -1
+	 * @param	statement	The prepared statement
+	 * @param	bindIndex	The placeholder to bind
+	 * @param	model	The model to read the value from
+	 * @param	column	The column index of the value in the model metadata
+	 */
+	private static void bindColumn(Statement statement, int bindIndex, BaseModel model, int column) throws DatabaseException {
+		switch (model.getMetadata().getColumnType(column)) {
+			case BaseModel.TYPE_PRIMARY_KEY:
+				if (model.isNull(column)) {
+					statement.bindNull(bindIndex);
+				} else {
+					statement.bind(bindIndex, model.getLong(column));
+				}
+				break;
+			case BaseModel.TYPE_STRING:
+				statement.bind(bindIndex, model.getString(column));
+				break;
+			case BaseModel.TYPE_LONG:
+				statement.bind(bindIndex, model.isNull(column) ? -1 : model.getLong(column));
+				break;
+			case BaseModel.TYPE_INTEGER:
+				statement.bind(bindIndex, model.isNull(column) ? -1 : model.getInt(column));
+				break;
+			case BaseModel.TYPE_FLOAT:
+				if (model.isNull(column)) {
+					statement.bindNull(bindIndex);
+				} else {
+					statement.bind(bindIndex, model.getDouble(column));
+				}
+				break;
+			case BaseModel.TYPE_BLOB:
+				if (model.isNull(column)) {
+					statement.bindNull(bindIndex);
+				} else {
+					statement.bind(bindIndex, model.getBlob(column));
+				}
+				break;
+			default:
+				statement.bindNull(bindIndex);
+				break;
+		}
 	}
 }
@@ -0,0 +1,84 @@
+package com.app.sqlite.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.helper.ResourceHelper;
+
+/**
+ * The handle and transaction a Migration runs in, a statement that fails throws
+ * so the step is rolled back
+ * @author samkirton
+ */
+public final class SchemaTransaction {
+	private SQLProvider mProvider;
+	private Database mDatabase;
+	private int mFromVersion;
+	
+	SchemaTransaction(SQLProvider provider, Database database, int fromVersion) {
+		mProvider = provider;
+		mDatabase = database;
+		mFromVersion = fromVersion;
+	}
+	
+	/**
+	 * @return	The schema version the step upgrades
+	 */
+	public int getFromVersion() {
+		return mFromVersion;
+	}
+	
+	/**
+	 * @return	The schema version once the step is committed
+	 */
+	public int getToVersion() {
+		return mFromVersion + 1;
+	}
+	
+	/**
+	 * @param	query	The query to execute
+	 */
+	public void execute(String query) throws DatabaseException {
+		mProvider.executeStatement(mDatabase, query, null);
+	}
+	
+	/**
+	 * @param	query	The query to execute
+	 * @param	arguments	The values bound to the ? placeholders of the query or null
+	 */
+	public void execute(String query, Object[] arguments) throws DatabaseException {
+		mProvider.executeStatement(mDatabase, query, arguments);
+	}
+	
+	/**
+	 * Execute every statement of a script
+	 * @param	inputStream	The script, the caller closes it
+	 * @see	SQLProvider#executeSchemaScript(InputStream)
+	 */
+	public void executeScript(InputStream inputStream) throws DatabaseException {
+		try {
+			mProvider.executeScript(mDatabase, inputStream);
+		} catch (IOException e) {
+			throw new DatabaseException("The script could not be read: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Execute every statement of a script resource
+	 * @param	resourceLocation	The location of the SQL script
+	 */
+	public void executeScript(String resourceLocation) throws DatabaseException {
+		InputStream inputStream = getClass().getResourceAsStream(resourceLocation);
+		if (!(inputStream instanceof InputStream)) {
+			throw new DatabaseException("Schema script not found: " + resourceLocation);
+		}
+		
+		try {
+			executeScript(inputStream);
+		} finally {
+			ResourceHelper.closeInputStream(inputStream);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.DatabaseException;
+
+/**
+ * A migration that runs a schema script resource
+ * @author samkirton
+ */
+public final class ScriptMigration implements Migration {
+	private String mResourceLocation;
+	
+	/**
+	 * @param	resourceLocation	The location of the SQL script of the step
+	 */
+	public ScriptMigration(String resourceLocation) {
+		mResourceLocation = resourceLocation;
+	}
+	
+	public void migrate(SchemaTransaction transaction) throws DatabaseException {
+		transaction.executeScript(mResourceLocation);
+	}
+}
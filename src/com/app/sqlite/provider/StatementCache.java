@@ -0,0 +1,209 @@
+package com.app.sqlite.provider;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.backend.Statement;
+import com.app.sqlite.helper.DatabaseHelper;
+
+/**
+ * A bounded LRU cache of prepared statements keyed by their SQL text. A cached
+ * statement is handed to one caller at a time, if it is already checked out the
+ * caller gets an uncached statement that is closed when it is released. The
+ * methods lock the cache, not the connection, so preparing a statement on one
+ * handle does not hold up the callers of another
+ * @author samkirton
+ */
+final class StatementCache {
+	private int mCapacity;
+	private Hashtable mEntries;
+	private Hashtable mCheckedOut;
+	private Entry mHead;
+	private Entry mTail;
+	private int mHitCount;
+	private int mMissCount;
+	private int mEvictionCount;
+	
+	StatementCache(int capacity) {
+		mCapacity = capacity;
+		mEntries = new Hashtable();
+		mCheckedOut = new Hashtable();
+	}
+	
+	/**
+	 * Get a prepared statement for the provided SQL, a cached statement is reset
+	 * before it is returned so the caller only has to bind its values again
+	 * @param	database	The database the statement belongs to
+	 * @param	sql	The SQL text of the statement
+	 * @return	A prepared statement that must be passed to release()
+	 */
+	synchronized Statement prepare(Database database, String sql) throws DatabaseException {
+		Entry entry = (Entry)mEntries.get(sql);
+		if (entry instanceof Entry && !entry.inUse) {
+			try {
+				entry.statement.reset();
+				entry.inUse = true;
+				mCheckedOut.put(entry.statement, entry);
+				moveToFront(entry);
+				mHitCount++;
+				return entry.statement;
+			} catch (DatabaseException e) {
+				// the statement can no longer be used, replace it below
+				remove(entry);
+				DatabaseHelper.closeStatement(entry.statement);
+				entry = null;
+			}
+		}
+		
+		mMissCount++;
+		Statement statement = database.createStatement(sql);
+		try {
+			statement.prepare();
+		} catch (DatabaseException e) {
+			// a statement that does not prepare is never handed out, so close it here
+			DatabaseHelper.closeStatement(statement);
+			throw e;
+		} catch (RuntimeException e) {
+			DatabaseHelper.closeStatement(statement);
+			throw e;
+		}
+		
+		// a statement that is already checked out by another caller is left in the cache
+		if (!(entry instanceof Entry) && mCapacity > 0) {
+			entry = new Entry(sql, statement);
+			entry.inUse = true;
+			mEntries.put(sql, entry);
+			mCheckedOut.put(statement, entry);
+			addToFront(entry);
+			evictIfFull();
+		}
+		
+		return statement;
+	}
+	
+	/**
+	 * Return a statement obtained from prepare()
+	 * @param	statement	The statement to release
+	 * @param	failed	Did the statement fail? A failed statement is not reused
+	 */
+	synchronized void release(Statement statement, boolean failed) {
+		if (!(statement instanceof Statement)) {
+			return;
+		}
+		
+		Entry entry = (Entry)mCheckedOut.remove(statement);
+		if (!(entry instanceof Entry)) {
+			DatabaseHelper.closeStatement(statement);
+			return;
+		}
+		
+		entry.inUse = false;
+		if (failed || entry.evicted) {
+			if (!entry.evicted) {
+				remove(entry);
+			}
+			DatabaseHelper.closeStatement(statement);
+		}
+	}
+	
+	/**
+	 * Close every cached statement, statements that are checked out are closed
+	 * when they are released. Called when the schema changes or the handle closes
+	 */
+	synchronized void clear() {
+		Enumeration entries = mEntries.elements();
+		while (entries.hasMoreElements()) {
+			Entry entry = (Entry)entries.nextElement();
+			entry.evicted = true;
+			if (!entry.inUse) {
+				DatabaseHelper.closeStatement(entry.statement);
+			}
+		}
+		
+		mEntries.clear();
+		mHead = null;
+		mTail = null;
+	}
+	
+	synchronized void setCapacity(int capacity) {
+		mCapacity = capacity;
+		evictIfFull();
+	}
+	
+	/**
+	 * @return	Was the statement returned by prepare() and not released yet?
+	 */
+	synchronized boolean isCheckedOut(Statement statement) {
+		return mCheckedOut.containsKey(statement);
+	}
+	
+	synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(mHitCount, mMissCount, mEvictionCount, mEntries.size(), mCapacity);
+	}
+	
+	private void evictIfFull() {
+		while (mEntries.size() > mCapacity && mTail instanceof Entry) {
+			Entry entry = mTail;
+			remove(entry);
+			entry.evicted = true;
+			mEvictionCount++;
+			if (!entry.inUse) {
+				DatabaseHelper.closeStatement(entry.statement);
+			}
+		}
+	}
+	
+	private void remove(Entry entry) {
+		mEntries.remove(entry.sql);
+		if (entry.previous instanceof Entry) {
+			entry.previous.next = entry.next;
+		} else {
+			mHead = entry.next;
+		}
+		
+		if (entry.next instanceof Entry) {
+			entry.next.previous = entry.previous;
+		} else {
+			mTail = entry.previous;
+		}
+		
+		entry.previous = null;
+		entry.next = null;
+	}
+	
+	private void addToFront(Entry entry) {
+		entry.next = mHead;
+		if (mHead instanceof Entry) {
+			mHead.previous = entry;
+		}
+		
+		mHead = entry;
+		if (!(mTail instanceof Entry)) {
+			mTail = entry;
+		}
+	}
+	
+	private void moveToFront(Entry entry) {
+		if (mHead != entry) {
+			remove(entry);
+			mEntries.put(entry.sql, entry);
+			addToFront(entry);
+		}
+	}
+	
+	private static final class Entry {
+		String sql;
+		Statement statement;
+		boolean inUse;
+		boolean evicted;
+		Entry previous;
+		Entry next;
+		
+		Entry(String sql, Statement statement) {
+			this.sql = sql;
+			this.statement = statement;
+		}
+	}
+}
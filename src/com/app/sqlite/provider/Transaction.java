@@ -0,0 +1,163 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.backend.Database;
+import com.app.sqlite.backend.DatabaseException;
+import com.app.sqlite.metrics.ProviderListener;
+
+/**
+ * A transaction that the provider calls of the thread that began it take part in,
+ * returned by SQLProvider.beginTransaction(). The thread holds the writer handle
+ * until the transaction ends, so its reads see its own writes and the writes of
+ * other threads wait. A transaction begun inside another is a SAVEPOINT that can 
+ * be rolled back on its own, and the bulk calls of the provider such as 
+ * insertValues() use savepoints the same way so a call that fails only undoes 
+ * its own work. The queued writes of the write-behind queue run on its own thread,
+ * so waiting for them inside a transaction never returns. Every transaction must 
+ * end with commit() or rollback(), close() rolls back a transaction that has not
+ * ended, with the transactions still open inside it, and is meant for a finally 
+ * block
+ * @author samkirton
+ */
+public final class Transaction {
+	private SQLProvider mProvider;
+	private DatabaseConnection mConnection;
+	private Database mDatabase;
+	private Thread mOwner;
+	private int mLevel;
+	private Transaction mOuter;
+	private boolean mActive;
+	
+	Transaction(SQLProvider provider, DatabaseConnection connection, Database database, int level) {
+		mProvider = provider;
+		mConnection = connection;
+		mDatabase = database;
+		mOwner = Thread.currentThread();
+		mLevel = level;
+		mOuter = connection.getTransaction();
+		mActive = true;
+		connection.setTransaction(this);
+	}
+	
+	/**
+	 * @return	Has the transaction not been committed or rolled back yet?
+	 */
+	public boolean isActive() {
+		return mActive;
+	}
+	
+	/**
+	 * @return	Is this a savepoint inside another transaction?
+	 */
+	public boolean isNested() {
+		return mLevel > 1;
+	}
+	
+	/**
+	 * Commit the transaction, a nested transaction is released into the one around
+	 * it and is only written when that one commits. If the commit fails the 
+	 * transaction is rolled back before the error is thrown
+	 * @throws	DatabaseException	The commit failed and nothing was written
+	 * @throws	IllegalStateException	The transaction has ended, a transaction nested
+	 * in it is still open or it is called from another thread
+	 */
+	public void commit() throws DatabaseException {
+		checkState();
+		long start = mConnection.startTimer();
+		Exception error = null;
+		try {
+			mConnection.commit(mDatabase);
+			mConnection.endPhase(ProviderListener.PHASE_COMMIT, null, start);
+		} catch (DatabaseException e) {
+			error = e;
+			// roll back so the locks of a failed commit are released
+			try {
+				mConnection.rollback(mDatabase);
+			} catch (DatabaseException rollbackError) { }
+			throw e;
+		} finally {
+			end(error);
+		}
+	}
+	
+	/**
+	 * Undo every write made since the transaction began, a nested transaction is 
+	 * rolled back without ending the one around it
+	 * @throws	DatabaseException	The rollback failed, SQLite may already have rolled
+	 * back the whole transaction after an error such as a full disk
+	 * @throws	IllegalStateException	The transaction has ended, a transaction nested
+	 * in it is still open or it is called from another thread
+	 */
+	public void rollback() throws DatabaseException {
+		checkState();
+		Exception error = null;
+		try {
+			mConnection.rollback(mDatabase);
+		} catch (DatabaseException e) {
+			error = e;
+			throw e;
+		} finally {
+			end(error);
+		}
+	}
+	
+	/**
+	 * Roll back the transaction if it has not ended, the transactions nested in it 
+	 * that are still open are rolled back first. Nothing is thrown, a failed rollback 
+	 * is printed and the writer handle is released anyway. Only the thread that began
+	 * the transaction uses its handle, a close() from another thread is printed and 
+	 * leaves the transaction open
+	 */
+	public void close() {
+		if (!mActive) {
+			return;
+		}
+		
+		if (mOwner != Thread.currentThread()) {
+			System.out.println("Close failed: a transaction can only be ended by the thread that began it");
+			return;
+		}
+		
+		Transaction inner = mConnection.getTransaction();
+		while (inner instanceof Transaction && inner != this) {
+			inner.close();
+			inner = mConnection.getTransaction();
+		}
+		
+		Exception error = null;
+		try {
+			if (mConnection.getTransactionLevel() == mLevel) {
+				mConnection.rollback(mDatabase);
+			} else {
+				System.out.println("Rollback failed: the transaction level does not match");
+			}
+		} catch (Exception e) {
+			error = e;
+			System.out.println("Rollback failed: " + e.getMessage());
+		} finally {
+			end(error);
+		}
+	}
+	
+	private void checkState() {
+		if (!mActive) {
+			throw new IllegalStateException("The transaction has ended");
+		}
+		
+		if (mOwner != Thread.currentThread()) {
+			throw new IllegalStateException("A transaction can only be ended by the thread that began it");
+		}
+		
+		if (mConnection.getTransactionLevel() != mLevel) {
+			throw new IllegalStateException("A transaction nested in this one is still open");
+		}
+	}
+	
+	private void end(Exception error) {
+		mActive = false;
+		mConnection.setTransaction(mOuter);
+		mConnection.release(mDatabase, error);
+		if (mLevel == 1) {
+			mProvider.transactionEnded();
+		}
+	}
+}
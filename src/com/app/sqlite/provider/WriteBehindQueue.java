@@ -0,0 +1,147 @@
+package com.app.sqlite.provider;
+
+import java.util.Vector;
+
+/**
+ * Queues writes for a single background writer thread. The writer takes up to
+ * the batch size of pending writes, waiting up to the batch delay for the batch
+ * to fill, and hands them to the SQLProvider to commit as one transaction.
+ * Callers block in enqueue() while the queue is full
+ * @author samkirton
+ */
+final class WriteBehindQueue implements Runnable {
+	private SQLProvider mProvider;
+	private Vector mPending;
+	private int mMaxQueueSize;
+	private int mMaxBatchSize;
+	private long mMaxBatchDelay;
+	private Thread mThread;
+	private boolean mRunning;
+	private long mEnqueuedCount;
+	private long mCompletedCount;
+	
+	WriteBehindQueue(SQLProvider provider, int maxQueueSize, int maxBatchSize, long maxBatchDelay) {
+		mProvider = provider;
+		mPending = new Vector();
+		mMaxQueueSize = Math.max(maxQueueSize, 1);
+		mMaxBatchSize = Math.max(maxBatchSize, 1);
+		mMaxBatchDelay = Math.max(maxBatchDelay, 0);
+	}
+	
+	synchronized void start() {
+		mRunning = true;
+		mThread = new Thread(this);
+		mThread.start();
+	}
+	
+	/**
+	 * Commit every pending write and stop the writer thread
+	 */
+	void stop() {
+		Thread thread;
+		synchronized (this) {
+			mRunning = false;
+			notifyAll();
+			thread = mThread;
+		}
+		
+		try {
+			thread.join();
+		} catch (InterruptedException e) { }
+	}
+	
+	/**
+	 * Queue a write, blocking while the queue is full
+	 * @param	handle	The write to queue
+	 * @return	The handle, failed if the queue is stopped or the caller was interrupted
+	 */
+	synchronized WriteHandle enqueue(WriteHandle handle) {
+		try {
+			while (mPending.size() >= mMaxQueueSize && mRunning) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			handle.complete(false, -1, "Interrupted while the write queue was full");
+			return handle;
+		}
+		
+		if (!mRunning) {
+			handle.complete(false, -1, "The write queue is stopped");
+			return handle;
+		}
+		
+		mPending.addElement(handle);
+		mEnqueuedCount++;
+		notifyAll();
+		return handle;
+	}
+	
+	/**
+	 * Block until every write queued before the call has completed
+	 */
+	synchronized void flush() throws InterruptedException {
+		long target = mEnqueuedCount;
+		while (mCompletedCount < target) {
+			wait();
+		}
+	}
+	
+	public void run() {
+		while (true) {
+			WriteHandle[] batch = nextBatch();
+			if (!(batch instanceof WriteHandle[])) {
+				return;
+			}
+			
+			if (batch.length == 0) {
+				continue;
+			}
+			
+			try {
+				mProvider.writeBatch(batch);
+			} finally {
+				synchronized (this) {
+					mCompletedCount += batch.length;
+					notifyAll();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return	The next batch of writes, an empty batch if the writer was interrupted
+	 * or null once the queue is stopped and empty
+	 */
+	private synchronized WriteHandle[] nextBatch() {
+		try {
+			while (mPending.isEmpty() && mRunning) {
+				wait();
+			}
+			
+			// give the batch a chance to fill before it is committed
+			long deadline = System.currentTimeMillis() + mMaxBatchDelay;
+			long remaining = mMaxBatchDelay;
+			while (mPending.size() < mMaxBatchSize && mRunning && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		} catch (InterruptedException e) { }
+		
+		if (mPending.isEmpty()) {
+			return mRunning ? new WriteHandle[0] : null;
+		}
+		
+		WriteHandle[] batch = new WriteHandle[Math.min(mPending.size(), mMaxBatchSize)];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = (WriteHandle)mPending.elementAt(i);
+		}
+		
+		for (int i = 0; i < batch.length; i++) {
+			mPending.removeElementAt(0);
+		}
+		
+		// wake callers blocked on a full queue
+		notifyAll();
+		return batch;
+	}
+}
@@ -0,0 +1,116 @@
+package com.app.sqlite.provider;
+
+import com.app.sqlite.base.BaseModel;
+
+/**
+ * A write queued by the SQLProvider write-behind mode, the handle completes once
+ * the transaction that contains the write has been committed or the write failed
+ * @author samkirton
+ */
+public final class WriteHandle {
+	private int mType;
+	private BaseModel mModel;
+	private String mQuery;
+	private Object[] mArguments;
+	
+	private boolean mDone;
+	private boolean mSuccessful;
+	private long mRowId = -1;
+	private String mErrorMessage;
+	
+	static final int TYPE_INSERT = 0;
+	static final int TYPE_QUERY = 1;
+	
+	WriteHandle(BaseModel model) {
+		mType = TYPE_INSERT;
+		mModel = model;
+	}
+	
+	WriteHandle(String query, Object[] arguments) {
+		mType = TYPE_QUERY;
+		mQuery = query;
+		mArguments = arguments;
+	}
+	
+	int getType() {
+		return mType;
+	}
+	
+	BaseModel getModel() {
+		return mModel;
+	}
+	
+	String getQuery() {
+		return mQuery;
+	}
+	
+	Object[] getArguments() {
+		return mArguments;
+	}
+	
+	/**
+	 * @return	Has the write been committed or failed?
+	 */
+	public synchronized boolean isDone() {
+		return mDone;
+	}
+	
+	/**
+	 * Block until the write has been committed or failed
+	 * @return	Was the write committed?
+	 */
+	public synchronized boolean waitFor() throws InterruptedException {
+		while (!mDone) {
+			wait();
+		}
+		
+		return mSuccessful;
+	}
+	
+	/**
+	 * Block until the write has been committed or failed or the timeout expires
+	 * @param	timeout	The maximum time to wait in milliseconds
+	 * @return	Was the write committed? False if it is still pending
+	 */
+	public synchronized boolean waitFor(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		long remaining = timeout;
+		while (!mDone && remaining > 0) {
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		
+		return mSuccessful;
+	}
+	
+	/**
+	 * @return	Was the write committed?
+	 */
+	public synchronized boolean isSuccessful() {
+		return mSuccessful;
+	}
+	
+	/**
+	 * @return	The row id of a committed insert, -1 for any other write
+	 */
+	public synchronized long getRowId() {
+		return mRowId;
+	}
+	
+	/**
+	 * @return	The reason the write failed or null
+	 */
+	public synchronized String getErrorMessage() {
+		return mErrorMessage;
+	}
+	
+	synchronized void complete(boolean successful, long rowId, String errorMessage) {
+		mSuccessful = successful;
+		mRowId = successful ? rowId : -1;
+		mErrorMessage = errorMessage;
+		mDone = true;
+		mModel = null;
+		mArguments = null;
+		notifyAll();
+	}
+}
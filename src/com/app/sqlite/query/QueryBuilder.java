@@ -0,0 +1,405 @@
+package com.app.sqlite.query;
+
+import java.util.Vector;
+
+/**
+ * Builds SELECT, UPDATE and DELETE queries that use ? placeholders for every
+ * value. Equivalent queries produce the same SQL text so they share a prepared
+ * statement, and values are never spliced into the SQL
+ * @author samkirton
+ */
+public final class QueryBuilder {
+	private int mType;
+	private String mTableName;
+	private String[] mColumns;
+	private StringBuffer mSet;
+	private Vector mSetArguments;
+	private StringBuffer mWhere;
+	private Vector mWhereArguments;
+	private StringBuffer mOrderBy;
+	private int mLimit = -1;
+	
+	public static final int TYPE_SELECT = 0;
+	public static final int TYPE_UPDATE = 1;
+	public static final int TYPE_DELETE = 2;
+	
+	public static final String EQUAL = "=";
+	public static final String NOT_EQUAL = "!=";
+	public static final String LESS = "<";
+	public static final String LESS_OR_EQUAL = "<=";
+	public static final String GREATER = ">";
+	public static final String GREATER_OR_EQUAL = ">=";
+	public static final String LIKE = "LIKE";
+	
+	/**
+	 * @param	tableName	The table to SELECT * from
+	 */
+	public static QueryBuilder select(String tableName) {
+		return new QueryBuilder(TYPE_SELECT, tableName);
+	}
+	
+	/**
+	 * @param	tableName	The table to select from
+	 * @param	columns	The columns to select or null to SELECT *
+	 * @see	#columns(String[])
+	 */
+	public static QueryBuilder select(String tableName, String[] columns) {
+		return select(tableName).columns(columns);
+	}
+	
+	/**
+	 * @param	tableName	The table to UPDATE, the columns are provided with set()
+	 */
+	public static QueryBuilder update(String tableName) {
+		return new QueryBuilder(TYPE_UPDATE, tableName);
+	}
+	
+	/**
+	 * @param	tableName	The table to DELETE FROM
+	 */
+	public static QueryBuilder delete(String tableName) {
+		return new QueryBuilder(TYPE_DELETE, tableName);
+	}
+	
+	private QueryBuilder(int type, String tableName) {
+		mType = type;
+		mTableName = tableName;
+		mWhere = new StringBuffer();
+		mWhereArguments = new Vector();
+	}
+	
+	public int getType() {
+		return mType;
+	}
+	
+	public String getTableName() {
+		return mTableName;
+	}
+	
+	/**
+	 * Select only the provided columns, SQLite then reads and decodes nothing else 
+	 * and can answer the query from an index that holds every selected column
+	 * @param	columns	The columns to select or null to SELECT *
+	 */
+	public QueryBuilder columns(String[] columns) {
+		if (mType != TYPE_SELECT) {
+			throw new IllegalStateException("Only a SELECT query can select columns");
+		}
+		
+		mColumns = columns;
+		return this;
+	}
+	
+	/**
+	 * @return	The selected columns or null for SELECT *
+	 */
+	public String[] getColumns() {
+		return mColumns;
+	}
+	
+	/**
+	 * Set a column of an UPDATE query
+	 * @param	column	The column to set
+	 * @param	value	The value, null sets the column to NULL
+	 */
+	public QueryBuilder set(String column, String value) {
+		return addSet(column, value);
+	}
+	
+	public QueryBuilder set(String column, long value) {
+		return addSet(column, new Long(value));
+	}
+	
+	public QueryBuilder set(String column, int value) {
+		return addSet(column, new Integer(value));
+	}
+	
+	public QueryBuilder set(String column, double value) {
+		return addSet(column, new Double(value));
+	}
+	
+	/**
+	 * Add a column = value condition, conditions are joined with AND
+	 * @param	column	The column of the condition
+	 * @param	value	The value, null matches rows where the column IS NULL
+	 */
+	public QueryBuilder whereEquals(String column, String value) {
+		if (!(value instanceof String)) {
+			return whereNull(column);
+		}
+		
+		return where(column, EQUAL, value);
+	}
+	
+	public QueryBuilder whereEquals(String column, long value) {
+		return where(column, EQUAL, value);
+	}
+	
+	public QueryBuilder whereEquals(String column, int value) {
+		return where(column, EQUAL, value);
+	}
+	
+	public QueryBuilder whereEquals(String column, double value) {
+		return where(column, EQUAL, value);
+	}
+	
+	/**
+	 * Add a column [operator] value condition, conditions are joined with AND
+	 * @param	column	The column of the condition
+	 * @param	operator	One of the operator constants, EQUAL, LESS, LIKE etc
+	 * @param	value	The value to compare the column with
+	 */
+	public QueryBuilder where(String column, String operator, String value) {
+		return addCondition(column, operator, value);
+	}
+	
+	public QueryBuilder where(String column, String operator, long value) {
+		return addCondition(column, operator, new Long(value));
+	}
+	
+	public QueryBuilder where(String column, String operator, int value) {
+		return addCondition(column, operator, new Integer(value));
+	}
+	
+	public QueryBuilder where(String column, String operator, double value) {
+		return addCondition(column, operator, new Double(value));
+	}
+	
+	/**
+	 * Add a column IN (?, ?, ...) condition
+	 * @param	column	The column of the condition
+	 * @param	values	The values to match, an empty list matches no rows
+	 */
+	public QueryBuilder whereIn(String column, long[] values) {
+		startCondition();
+		if (values.length == 0) {
+			mWhere.append("0");
+			return this;
+		}
+		
+		appendIn(column, values.length);
+		for (int i = 0; i < values.length; i++) {
+			mWhereArguments.addElement(new Long(values[i]));
+		}
+		
+		return this;
+	}
+	
+	public QueryBuilder whereIn(String column, String[] values) {
+		startCondition();
+		if (values.length == 0) {
+			mWhere.append("0");
+			return this;
+		}
+		
+		appendIn(column, values.length);
+		for (int i = 0; i < values.length; i++) {
+			mWhereArguments.addElement(values[i]);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Add a column BETWEEN low AND high condition, both bounds are inclusive
+	 */
+	public QueryBuilder whereBetween(String column, long low, long high) {
+		return addBetween(column, new Long(low), new Long(high));
+	}
+	
+	public QueryBuilder whereBetween(String column, double low, double high) {
+		return addBetween(column, new Double(low), new Double(high));
+	}
+	
+	public QueryBuilder whereBetween(String column, String low, String high) {
+		return addBetween(column, low, high);
+	}
+	
+	public QueryBuilder whereNull(String column) {
+		startCondition();
+		mWhere.append(column);
+		mWhere.append(" IS NULL");
+		return this;
+	}
+	
+	public QueryBuilder whereNotNull(String column) {
+		startCondition();
+		mWhere.append(column);
+		mWhere.append(" IS NOT NULL");
+		return this;
+	}
+	
+	/**
+	 * Order the results of a SELECT query, columns are ordered in the order they are added
+	 * @param	column	The column to order by
+	 * @param	descending	Order the column in descending order?
+	 */
+	public QueryBuilder orderBy(String column, boolean descending) {
+		if (!(mOrderBy instanceof StringBuffer)) {
+			mOrderBy = new StringBuffer();
+		} else {
+			mOrderBy.append(", ");
+		}
+		
+		mOrderBy.append(column);
+		mOrderBy.append(descending ? " DESC" : " ASC");
+		return this;
+	}
+	
+	/**
+	 * @param	limit	The maximum number of rows a SELECT query returns
+	 */
+	public QueryBuilder limit(int limit) {
+		mLimit = limit;
+		return this;
+	}
+	
+	/**
+	 * @return	The WHERE clause without the WHERE keyword or an empty string
+	 */
+	public String getWhereClause() {
+		return mWhere.toString();
+	}
+	
+	/**
+	 * @return	The query with a ? placeholder for every value
+	 */
+	public String toSql() {
+		StringBuffer stringBuffer = new StringBuffer();
+		if (mType == TYPE_SELECT) {
+			stringBuffer.append("SELECT ");
+			appendColumns(stringBuffer);
+			stringBuffer.append(" FROM ");
+			stringBuffer.append(mTableName);
+		} else if (mType == TYPE_UPDATE) {
+			if (!(mSet instanceof StringBuffer)) {
+				throw new IllegalStateException("An UPDATE query must set at least one column");
+			}
+			
+			stringBuffer.append("UPDATE ");
+			stringBuffer.append(mTableName);
+			stringBuffer.append(" SET ");
+			stringBuffer.append(mSet.toString());
+		} else {
+			stringBuffer.append("DELETE FROM ");
+			stringBuffer.append(mTableName);
+		}
+		
+		if (mWhere.length() > 0) {
+			stringBuffer.append(" WHERE ");
+			stringBuffer.append(mWhere.toString());
+		}
+		
+		if (mType == TYPE_SELECT) {
+			if (mOrderBy instanceof StringBuffer) {
+				stringBuffer.append(" ORDER BY ");
+				stringBuffer.append(mOrderBy.toString());
+			}
+			
+			if (mLimit >= 0) {
+				stringBuffer.append(" LIMIT ");
+				stringBuffer.append(mLimit);
+			}
+		}
+		
+		return stringBuffer.toString();
+	}
+	
+	/**
+	 * @return	The values bound to the placeholders of toSql() in order, each value
+	 * is a String, Long, Integer, Double or null
+	 */
+	public Object[] getArguments() {
+		int setCount = mSetArguments instanceof Vector ? mSetArguments.size() : 0;
+		Object[] arguments = new Object[setCount + mWhereArguments.size()];
+		for (int i = 0; i < setCount; i++) {
+			arguments[i] = mSetArguments.elementAt(i);
+		}
+		
+		for (int i = 0; i < mWhereArguments.size(); i++) {
+			arguments[setCount + i] = mWhereArguments.elementAt(i);
+		}
+		
+		return arguments;
+	}
+	
+	public String toString() {
+		return toSql();
+	}
+	
+	private QueryBuilder addSet(String column, Object value) {
+		if (mType != TYPE_UPDATE) {
+			throw new IllegalStateException("Only an UPDATE query can set columns");
+		}
+		
+		if (!(mSet instanceof StringBuffer)) {
+			mSet = new StringBuffer();
+			mSetArguments = new Vector();
+		} else {
+			mSet.append(", ");
+		}
+		
+		mSet.append(column);
+		mSet.append(" = ?");
+		mSetArguments.addElement(value);
+		return this;
+	}
+	
+	private QueryBuilder addCondition(String column, String operator, Object value) {
+		if (!isOperator(operator)) {
+			throw new IllegalArgumentException("Unsupported operator: " + operator);
+		}
+		
+		startCondition();
+		mWhere.append(column);
+		mWhere.append(' ');
+		mWhere.append(operator);
+		mWhere.append(" ?");
+		mWhereArguments.addElement(value);
+		return this;
+	}
+	
+	private QueryBuilder addBetween(String column, Object low, Object high) {
+		startCondition();
+		mWhere.append(column);
+		mWhere.append(" BETWEEN ? AND ?");
+		mWhereArguments.addElement(low);
+		mWhereArguments.addElement(high);
+		return this;
+	}
+	
+	private void appendColumns(StringBuffer stringBuffer) {
+		if (!(mColumns instanceof String[]) || mColumns.length == 0) {
+			stringBuffer.append('*');
+			return;
+		}
+		
+		for (int i = 0; i < mColumns.length; i++) {
+			if (i > 0) {
+				stringBuffer.append(", ");
+			}
+			stringBuffer.append(mColumns[i]);
+		}
+	}
+	
+	private void appendIn(String column, int count) {
+		mWhere.append(column);
+		mWhere.append(" IN (");
+		for (int i = 0; i < count; i++) {
+			mWhere.append(i == 0 ? "?" : ", ?");
+		}
+		mWhere.append(')');
+	}
+	
+	private void startCondition() {
+		if (mWhere.length() > 0) {
+			mWhere.append(" AND ");
+		}
+	}
+	
+	private static boolean isOperator(String operator) {
+		return EQUAL.equals(operator) || NOT_EQUAL.equals(operator) || LESS.equals(operator) ||
+			LESS_OR_EQUAL.equals(operator) || GREATER.equals(operator) ||
+			GREATER_OR_EQUAL.equals(operator) || LIKE.equals(operator);
+	}
+}